@@ -0,0 +1,129 @@
+package com.communitysolar.config;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admission limit for virtual-thread mode. With platform threads Tomcat's
+ * worker pool caps how many requests run at once; with virtual threads
+ * nothing does, and every request past the connection pool just waits in
+ * Hikari until it times out. Instead at most a few requests per pooled
+ * connection are admitted, the rest queue here in arrival order for a short
+ * while and are then shed with 503 and Retry-After.
+ *
+ * The limit follows the primary pool; reads that go to the replica only make
+ * it more conservative. Actuator endpoints are never held back.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 2)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size}")
+    private int poolSize;
+
+    @Value("${app.concurrency.requests-per-connection}")
+    private int requestsPerConnection;
+
+    // 0 derives the limit from the pool size
+    @Value("${app.concurrency.max-in-flight}")
+    private int maxInFlight;
+
+    @Value("${app.concurrency.queue-timeout-ms}")
+    private long queueTimeoutMs;
+
+    @Value("${app.concurrency.retry-after-seconds}")
+    private int retryAfterSeconds;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private Semaphore permits;
+
+    private Counter shed;
+
+    @PostConstruct
+    void init() {
+        int limit = maxInFlight > 0 ? maxInFlight : poolSize * requestsPerConnection;
+        permits = new Semaphore(limit, true);
+        Gauge.builder("http.server.requests.in-flight", permits, p -> limit - p.availablePermits())
+                .register(meterRegistry);
+        shed = Counter.builder("http.server.requests.shed").register(meterRegistry);
+        logger.info("Virtual threads enabled; admitting at most {} concurrent requests", limit);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getServletPath().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            shed.increment();
+            reject(request, response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.debug("Shedding {} {}: server at its concurrency limit", request.getMethod(), request.getServletPath());
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+
+        final Map<String, Object> body = new HashMap<>();
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("error", "Service Unavailable");
+        body.put("message", "Error: Server is busy. Please retry later.");
+        body.put("path", request.getServletPath());
+
+        mapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,58 @@
+package com.communitysolar.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+
+import org.h2.api.Trigger;
+
+import com.communitysolar.service.ReadingPartitions;
+
+/**
+ * Instead-of-insert trigger on the H2 reading views: writes each row into
+ * the table of its month. H2 has no native partitioning, so this plays the
+ * part of the PostgreSQL partition router. Only inserts are routed.
+ *
+ * Triggers run inside the database, so when H2 runs as a separate server
+ * this class must be on the server's classpath.
+ */
+public class H2ReadingRouter implements Trigger {
+
+    private ReadingPartitions.Table table;
+    private String columns;
+    private String placeholders;
+    private int timeColumn;
+
+    @Override
+    public void init(Connection connection, String schemaName, String triggerName, String tableName,
+            boolean before, int type) {
+        table = ReadingPartitions.Table.valueOf(tableName.toUpperCase());
+        List<String> names = table.columnNames();
+        columns = String.join(", ", names);
+        placeholders = String.join(", ", Collections.nCopies(names.size(), "?"));
+        timeColumn = table.timeColumnIndex();
+    }
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+        Object time = newRow[timeColumn];
+        LocalDateTime timestamp = time instanceof Timestamp sqlTimestamp ? sqlTimestamp.toLocalDateTime()
+                : (LocalDateTime) time;
+        if (timestamp == null) {
+            throw new SQLException(table.timeColumn() + " is required to route a row of " + table.tableName());
+        }
+        // Fails with "table not found" when the month has no table yet, like PostgreSQL without a partition
+        try (PreparedStatement insert = connection.prepareStatement("insert into "
+                + table.monthTable(YearMonth.from(timestamp)) + " (" + columns + ") values (" + placeholders + ")")) {
+            for (int i = 0; i < newRow.length; i++) {
+                insert.setObject(i + 1, newRow[i]);
+            }
+            insert.executeUpdate();
+        }
+    }
+}
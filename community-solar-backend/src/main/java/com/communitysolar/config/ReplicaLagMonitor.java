@@ -0,0 +1,81 @@
+package com.communitysolar.config;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Measures how far the read replica is behind the primary.
+ *
+ * Each tick writes the current time to the single row of
+ * {@code replication_heartbeat} on the primary and reads the row back from
+ * the replica; the difference is the replication lag. The replica is used
+ * only while the lag is within {@code max-lag-ms}, so reads fall back to the
+ * primary when replication stalls or the replica is unreachable. It starts
+ * out unused until the first successful check.
+ */
+public class ReplicaLagMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+
+    private volatile boolean replicaUsable;
+    private volatile long lagMs = -1;
+
+    public ReplicaLagMonitor(DataSource primaryDataSource, DataSource replicaDataSource, long maxLagMs) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.replica.setQueryTimeout((int) Math.max(1, maxLagMs / 1000));
+        this.maxLagMs = maxLagMs;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * @return the lag at the last check in milliseconds, or -1 if the replica could not be read
+     */
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.heartbeat-interval-ms}")
+    public void check() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            primary.update("update replication_heartbeat set beat_at = ? where id = 1", Timestamp.valueOf(now));
+        } catch (RuntimeException e) {
+            logger.warn("Could not write the replication heartbeat: {}", e.getMessage());
+        }
+
+        boolean usable;
+        try {
+            Timestamp replicated = replica.queryForObject(
+                    "select beat_at from replication_heartbeat where id = 1", Timestamp.class);
+            lagMs = replicated != null ? Math.max(0, Duration.between(replicated.toLocalDateTime(), now).toMillis()) : -1;
+            usable = lagMs >= 0 && lagMs <= maxLagMs;
+        } catch (RuntimeException e) {
+            lagMs = -1;
+            usable = false;
+        }
+        if (usable != replicaUsable) {
+            if (usable) {
+                logger.info("Read replica caught up (lag {} ms); routing read-only transactions to it", lagMs);
+            } else {
+                logger.warn("Read replica lag {} ms is over {} ms or unknown; routing reads to the primary",
+                        lagMs, maxLagMs);
+            }
+            replicaUsable = usable;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.communitysolar.config;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Measures what each request costs the database and the wire: the SQL
+ * statements it issued (see {@link RequestStatementCounter}) and the bytes of
+ * its response body. Both are recorded per route as the
+ * {@code http.server.requests.statements} and
+ * {@code http.server.requests.payload} summaries, and requests over the
+ * configured budgets are logged and counted in
+ * {@code http.server.requests.over-budget} so N+1 loads and oversized
+ * responses show up without a profiler.
+ *
+ * Runs ahead of the security chain so token and principal lookups are counted
+ * too. Bytes are counted as they are written, the body is not buffered.
+ * Asynchronous requests are recorded once, after their async dispatch, with
+ * the statements of any work submitted through
+ * {@link RequestStatementCounter#propagating}.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class RequestCostFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestCostFilter.class);
+
+    private static final String ASYNC_STATE_ATTRIBUTE = RequestCostFilter.class.getName() + ".ASYNC_STATE";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.monitoring.request.max-statements}")
+    private int maxStatements;
+
+    @Value("${app.monitoring.request.max-payload-bytes}")
+    private long maxPayloadBytes;
+
+    // Carries an async request's counts from its first dispatch to the one that completes it
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CountingResponse countingResponse;
+        if (isAsyncDispatch(request) && request.getAttribute(ASYNC_STATE_ATTRIBUTE) instanceof AsyncState state) {
+            request.removeAttribute(ASYNC_STATE_ATTRIBUTE);
+            countingResponse = state.response();
+            RequestStatementCounter.resume(state.count());
+        } else {
+            countingResponse = new CountingResponse(response);
+            RequestStatementCounter.start();
+        }
+        try {
+            filterChain.doFilter(request, countingResponse);
+            if (!isAsyncStarted(request)) {
+                countingResponse.flushWriter();
+            }
+        } finally {
+            if (isAsyncStarted(request)) {
+                request.setAttribute(ASYNC_STATE_ATTRIBUTE,
+                        new AsyncState(countingResponse, RequestStatementCounter.suspend()));
+            } else {
+                record(request, countingResponse, RequestStatementCounter.stop());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, CountingResponse countingResponse, int statements) {
+        long bytes = countingResponse.getByteCount();
+        String route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern
+                ? pattern : "UNKNOWN";
+
+        DistributionSummary.builder("http.server.requests.statements")
+                .tags("method", request.getMethod(), "uri", route)
+                .register(meterRegistry)
+                .record(statements);
+        DistributionSummary.builder("http.server.requests.payload")
+                .baseUnit("bytes")
+                .tags("method", request.getMethod(), "uri", route)
+                .register(meterRegistry)
+                .record(bytes);
+
+        if (statements > maxStatements || bytes > maxPayloadBytes) {
+            meterRegistry.counter("http.server.requests.over-budget", "method", request.getMethod(), "uri", route)
+                    .increment();
+            logger.warn("{} {} issued {} SQL statements and returned {} bytes (budget {} statements, {} bytes)",
+                    request.getMethod(), request.getRequestURI(), statements, bytes, maxStatements, maxPayloadBytes);
+        }
+    }
+
+    private record AsyncState(CountingResponse response, int[] count) {
+    }
+
+    private static class CountingResponse extends HttpServletResponseWrapper {
+        private CountingOutputStream outputStream;
+        private PrintWriter writer;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            super.flushBuffer();
+        }
+
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        long getByteCount() {
+            return outputStream != null ? outputStream.count : 0;
+        }
+    }
+
+    private static class CountingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private long count;
+
+        CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            delegate.setWriteListener(listener);
+        }
+    }
+}
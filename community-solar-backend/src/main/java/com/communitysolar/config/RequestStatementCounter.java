@@ -0,0 +1,102 @@
+package com.communitysolar.config;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between
+ * {@link #start()} and {@link #stop()}. Second-level and query cache hits
+ * never reach the database and are not counted; a JDBC batch counts once.
+ *
+ * Work a request hands to another thread is counted when it is submitted
+ * through {@link #propagating(Executor)}.
+ *
+ * With {@code app.monitoring.request.fail-over-budget} set, meant for
+ * development, the first statement past the request budget fails instead of
+ * running, so an N+1 load shows up as an error rather than a log line.
+ */
+@Component
+public class RequestStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Value("${app.monitoring.request.max-statements}")
+    private int maxStatements;
+
+    @Value("${app.monitoring.request.fail-over-budget}")
+    private boolean failOverBudget;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+            if (failOverBudget && count[0] > maxStatements) {
+                throw new IllegalStateException("Request went over its budget of " + maxStatements
+                        + " SQL statements at: " + sql);
+            }
+        }
+        return sql;
+    }
+
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * @return the statements counted since {@link #start()} on this thread
+     */
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count != null ? count[0] : 0;
+    }
+
+    /**
+     * An executor that counts the statements of the tasks it runs against the
+     * count started on the calling thread, if any.
+     */
+    public static Executor propagating(Executor delegate) {
+        int[] count = COUNT.get();
+        if (count == null) {
+            return delegate;
+        }
+        return task -> delegate.execute(() -> {
+            int[] previous = COUNT.get();
+            COUNT.set(count);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    COUNT.set(previous);
+                } else {
+                    COUNT.remove();
+                }
+            }
+        });
+    }
+
+    // Detaches the count from this thread, to be resumed by the request's async dispatch
+    static int[] suspend() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count;
+    }
+
+    static void resume(int[] count) {
+        COUNT.set(count);
+    }
+}
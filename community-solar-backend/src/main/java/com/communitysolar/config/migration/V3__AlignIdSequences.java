@@ -0,0 +1,52 @@
+package com.communitysolar.config.migration;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes sure every table has its id sequence and that the sequence is past
+ * the ids already in the table.
+ *
+ * The V1 tables were created while ids were IDENTITY columns, so they have
+ * no sequence yet, or one still at 1 if it was added by hand. On a fresh
+ * database the tables are empty and nothing is moved. The table list must
+ * follow the entities' {@code @SequenceGenerator}s.
+ */
+@Component
+public class V3__AlignIdSequences extends BaseJavaMigration {
+
+    // Must match allocationSize on the entities' @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final List<String> TABLES = List.of(
+            "addresses", "communities", "community_members", "electricity_usage", "energy_data",
+            "installation_alerts", "installation_milestones", "installation_updates", "installations",
+            "net_metering_settlements", "payments", "provider_reviews", "providers", "refresh_tokens",
+            "roles", "solar_plan_allocations", "solar_plans", "solar_usage", "users");
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (String table : TABLES) {
+                String sequence = table + "_seq";
+                statement.execute("create sequence if not exists " + sequence
+                        + " start with 1 increment by " + ALLOCATION_SIZE);
+
+                long maxId;
+                try (ResultSet rs = statement.executeQuery("select coalesce(max(id), 0) from " + table)) {
+                    rs.next();
+                    maxId = rs.getLong(1);
+                }
+                // The pooled optimizer hands out the block ending at the value it reads
+                if (maxId > 0) {
+                    statement.execute("alter sequence " + sequence + " restart with " + (maxId + ALLOCATION_SIZE + 1));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.communitysolar.config.migration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+import com.communitysolar.service.ReadingPartitions;
+
+/**
+ * Splits the reading tables into month tables (see {@link ReadingPartitions}).
+ *
+ * The existing table is renamed aside, the partitioned parent (PostgreSQL) or
+ * view (H2) is created in its place, a month table is created for every month
+ * that has rows, and the rows are copied across. Rows without a timestamp
+ * belong to no month and are not carried over; the ingestion API never
+ * stored any.
+ */
+@Component
+public class V4__PartitionReadingTables extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        boolean nativePartitioning = ReadingPartitions.isPostgres(connection);
+        try (Statement statement = connection.createStatement()) {
+            for (ReadingPartitions.Table table : ReadingPartitions.Table.values()) {
+                partition(statement, table, nativePartitioning);
+            }
+        }
+    }
+
+    private void partition(Statement statement, ReadingPartitions.Table table, boolean nativePartitioning)
+            throws Exception {
+        String name = table.tableName();
+        String legacy = name + "_unpartitioned";
+        String time = table.timeColumn();
+        String columns = String.join(", ", table.columnNames());
+
+        statement.execute("alter table " + name + " rename to " + legacy);
+        if (nativePartitioning) {
+            // Constraint and index names stay with the renamed table and would clash with the parent's
+            statement.execute("alter index " + name + "_pkey rename to " + legacy + "_pkey");
+            for (String index : indexNames(statement, legacy)) {
+                statement.execute("alter index " + index + " rename to " + index + "_unpartitioned");
+            }
+        }
+        ReadingPartitions.createParent(statement, table, nativePartitioning);
+
+        NavigableSet<YearMonth> months = new TreeSet<>();
+        try (ResultSet rs = statement.executeQuery("select distinct extract(year from " + time + "), extract(month from "
+                + time + ") from " + legacy + " where " + time + " is not null")) {
+            while (rs.next()) {
+                months.add(YearMonth.of(rs.getInt(1), rs.getInt(2)));
+            }
+        }
+        for (YearMonth month : months) {
+            ReadingPartitions.createMonth(statement, table, month, nativePartitioning);
+        }
+        if (nativePartitioning) {
+            statement.execute("insert into " + name + " (" + columns + ") select " + columns + " from " + legacy
+                    + " where " + time + " is not null");
+        } else {
+            for (YearMonth month : months) {
+                statement.execute("insert into " + table.monthTable(month) + " (" + columns + ") select " + columns
+                        + " from " + legacy + " where " + time + " >= timestamp '" + month.atDay(1) + " 00:00:00' and "
+                        + time + " < timestamp '" + month.plusMonths(1).atDay(1) + " 00:00:00'");
+            }
+            ReadingPartitions.replaceView(statement, table, months);
+        }
+        statement.execute("drop table " + legacy);
+    }
+
+    private static List<String> indexNames(Statement statement, String table) throws Exception {
+        List<String> names = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery("select indexname from pg_indexes where tablename = '" + table
+                + "' and indexname like 'idx_%'")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+}
@@ -2,29 +2,39 @@ package com.communitysolar.controller;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.communitysolar.config.RequestStatementCounter;
 import com.communitysolar.dto.auth.JwtResponse;
 import com.communitysolar.dto.auth.LoginRequest;
 import com.communitysolar.dto.auth.MessageResponse;
 import com.communitysolar.dto.auth.SignupRequest;
+import com.communitysolar.dto.auth.TokenRefreshRequest;
+import com.communitysolar.dto.auth.UserProfileResponse;
 import com.communitysolar.dto.auth.PasswordResetRequest;
 import com.communitysolar.dto.auth.PasswordResetConfirmRequest;
 import com.communitysolar.model.ERole;
@@ -32,7 +42,15 @@ import com.communitysolar.model.Role;
 import com.communitysolar.model.User;
 import com.communitysolar.repository.RoleRepository;
 import com.communitysolar.repository.UserRepository;
+import com.communitysolar.security.HashingCapacityExceededException;
+import com.communitysolar.security.JwtClaims;
 import com.communitysolar.security.JwtUtils;
+import com.communitysolar.security.PasswordHashingService;
+import com.communitysolar.security.PasswordResetService;
+import com.communitysolar.security.RateLimitFilter;
+import com.communitysolar.security.RefreshTokenService;
+import com.communitysolar.security.TokenRevocationList;
+import com.communitysolar.security.UserDetailsCache;
 import com.communitysolar.security.UserDetailsImpl;
 
 import jakarta.validation.Valid;
@@ -41,9 +59,6 @@ import jakarta.validation.Valid;
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
-    @Autowired
-    AuthenticationManager authenticationManager;
-
     @Autowired
     UserRepository userRepository;
 
@@ -51,51 +66,83 @@ public class AuthController {
     RoleRepository roleRepository;
 
     @Autowired
-    PasswordEncoder encoder;
+    PasswordHashingService passwordHashingService;
 
     @Autowired
     JwtUtils jwtUtils;
 
-    @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-        User user = userRepository.findByEmail(loginRequest.getEmail())
-                .orElseThrow(() -> new RuntimeException("Error: User not found with email: " + loginRequest.getEmail()));
-        
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(user.getUsername(), loginRequest.getPassword()));
+    @Autowired
+    UserDetailsCache userDetailsCache;
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtUtils.generateJwtToken(authentication);
+    @Autowired
+    RefreshTokenService refreshTokenService;
 
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        List<String> roles = userDetails.getAuthorities().stream()
-                .map(item -> item.getAuthority())
-                .collect(Collectors.toList());
+    @Autowired
+    TokenRevocationList revocationList;
+
+    @Autowired
+    RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    PasswordResetService passwordResetService;
 
-        return ResponseEntity.ok(new JwtResponse(jwt,
-                                                 userDetails.getId(),
-                                                 userDetails.getUsername(),
-                                                 userDetails.getEmail(),
-                                                 roles));
+    // Picks up requests once their password hash is ready, so hashing threads never wait on the database
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    AsyncTaskExecutor taskExecutor;
+
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+        // Emails are stored in lower case, so the lookup can use the unique index
+        String email = loginRequest.getEmail().trim().toLowerCase(Locale.ROOT);
+        long waitNanos = rateLimitFilter.tryAcquireLogin(email);
+        if (waitNanos > 0) {
+            return completed(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimitFilter.retryAfterSeconds(waitNanos)))
+                    .body(new MessageResponse("Error: Too many login attempts for this account. Please retry later.")));
+        }
+        User user = userRepository.findWithRolesByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Error: User not found with email: " + email));
+        Executor executor = RequestStatementCounter.propagating(taskExecutor);
+        
+        return passwordHashingService.matches(loginRequest.getPassword(), user.getPassword())
+                .thenCompose(matches -> {
+                    if (!matches) {
+                        throw new BadCredentialsException("Bad credentials");
+                    }
+                    // Re-hash at the current cost factor so the cost can be raised without resetting passwords
+                    return passwordHashingService.needsRehash(user.getPassword())
+                            ? passwordHashingService.encode(loginRequest.getPassword())
+                            : CompletableFuture.completedFuture((String) null);
+                })
+                .<ResponseEntity<?>>thenApplyAsync(rehashed -> {
+                    if (rehashed != null) {
+                        user.setPassword(rehashed);
+                        userRepository.save(user);
+                    }
+                    return ResponseEntity.ok(issueToken(UserDetailsImpl.build(user)));
+                }, executor);
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
         if (userRepository.existsByUsername(signUpRequest.getUsername())) {
-            return ResponseEntity
+            return completed(ResponseEntity
                     .badRequest()
-                    .body(new MessageResponse("Error: Username is already taken!"));
+                    .body(new MessageResponse("Error: Username is already taken!")));
         }
 
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
-            return ResponseEntity
+        String email = signUpRequest.getEmail().trim().toLowerCase(Locale.ROOT);
+        if (userRepository.existsByEmail(email)) {
+            return completed(ResponseEntity
                     .badRequest()
-                    .body(new MessageResponse("Error: Email is already in use!"));
+                    .body(new MessageResponse("Error: Email is already in use!")));
         }
 
+        // The password is set once it has been hashed, below
         User user = new User(signUpRequest.getUsername(),
-                             signUpRequest.getEmail(),
-                             encoder.encode(signUpRequest.getPassword()));
+                             email,
+                             null);
         
         user.setFirstName(signUpRequest.getFirstName());
         user.setLastName(signUpRequest.getLastName());
@@ -130,24 +177,44 @@ public class AuthController {
         }
 
         user.setRoles(roles);
-        userRepository.save(user);
-
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(signUpRequest.getUsername(), signUpRequest.getPassword()));
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtUtils.generateJwtToken(authentication);
-
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        List<String> userRoles = userDetails.getAuthorities().stream()
-                .map(item -> item.getAuthority())
-                .collect(Collectors.toList());
-                
-        return ResponseEntity.ok(new JwtResponse(jwt,
-                userDetails.getId(),
-                userDetails.getUsername(),
-                userDetails.getEmail(),
-                userRoles));
+        
+        return passwordHashingService.encode(signUpRequest.getPassword())
+                .<ResponseEntity<?>>thenApplyAsync(encoded -> {
+                    user.setPassword(encoded);
+                    User savedUser = userRepository.save(user);
+                    
+                    // The password was just hashed, so the token is issued without verifying it again
+                    return ResponseEntity.ok(issueToken(UserDetailsImpl.build(savedUser)));
+                }, RequestStatementCounter.propagating(taskExecutor));
+    }
+    
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody TokenRefreshRequest request) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+        if (rotation == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Error: Refresh token is invalid or expired. Please log in again."));
+        }
+        
+        JwtResponse response = issueAccessToken(rotation.user());
+        response.setRefreshToken(rotation.refreshToken());
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                    @RequestBody(required = false) TokenRefreshRequest request) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            JwtClaims claims = jwtUtils.parseToken(authorization.substring(7));
+            if (claims != null && claims.tokenId() != null) {
+                revocationList.revoke(claims.tokenId(), claims.expiration().getTime());
+            }
+        }
+        if (request != null && request.getRefreshToken() != null) {
+            refreshTokenService.revoke(request.getRefreshToken());
+        }
+        
+        return ResponseEntity.ok(new MessageResponse("Logged out successfully!"));
     }
     
     @GetMapping("/profile")
@@ -155,10 +222,13 @@ public class AuthController {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        User user = userRepository.findById(userDetails.getId())
+        UserProfileResponse profile = userRepository.findProfileById(userDetails.getId())
                 .orElseThrow(() -> new RuntimeException("Error: User is not found."));
+        profile.setRoles(userRepository.findRoleNamesById(userDetails.getId()).stream()
+                .map(ERole::name)
+                .collect(Collectors.toList()));
         
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok(profile);
     }
     
     @PutMapping("/profile")
@@ -174,25 +244,69 @@ public class AuthController {
         user.setPhoneNumber(userUpdate.getPhoneNumber());
         
         userRepository.save(user);
+        userDetailsCache.invalidate(user.getUsername());
         
         return ResponseEntity.ok(new MessageResponse("User profile updated successfully!"));
     }
     
     @PostMapping("/reset-password")
     public ResponseEntity<?> resetPassword(@Valid @RequestBody PasswordResetRequest passwordResetRequest) {
-        boolean userExists = userRepository.existsByEmail(passwordResetRequest.getEmail());
-        
-        if (!userExists) {
-            return ResponseEntity.ok(new MessageResponse("If your email is registered, you will receive password reset instructions."));
-        }
-        
-        String resetToken = UUID.randomUUID().toString();
-        
-        return ResponseEntity.ok(new MessageResponse("Password reset instructions have been sent to your email."));
+        // Same answer whether or not the email is registered
+        passwordResetService.requestReset(passwordResetRequest.getEmail());
+        return ResponseEntity.ok(new MessageResponse("If your email is registered, you will receive password reset instructions."));
     }
     
     @PostMapping("/confirm-reset-password")
-    public ResponseEntity<?> confirmResetPassword(@Valid @RequestBody PasswordResetConfirmRequest request) {
-        return ResponseEntity.ok(new MessageResponse("Your password has been successfully reset. Please login with your new password."));
+    public CompletableFuture<ResponseEntity<?>> confirmResetPassword(
+            @Valid @RequestBody PasswordResetConfirmRequest request) {
+        // Checked before hashing so dead links don't cost a hash; confirmReset checks again
+        if (!passwordResetService.isUsable(request.getToken())) {
+            return completed(invalidResetLink());
+        }
+        return passwordHashingService.encode(request.getNewPassword())
+                .<ResponseEntity<?>>thenApplyAsync(encoded -> {
+                    if (!passwordResetService.confirmReset(request.getToken(), encoded)) {
+                        return invalidResetLink();
+                    }
+                    return ResponseEntity.ok(new MessageResponse(
+                            "Your password has been successfully reset. Please login with your new password."));
+                }, RequestStatementCounter.propagating(taskExecutor));
+    }
+    
+    private static ResponseEntity<?> invalidResetLink() {
+        return ResponseEntity.badRequest().body(new MessageResponse("Error: The reset link is invalid or has expired."));
+    }
+    
+    @ExceptionHandler(HashingCapacityExceededException.class)
+    public ResponseEntity<?> handleHashingCapacityExceeded(HashingCapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new MessageResponse("Error: " + e.getMessage() + ". Please try again shortly."));
+    }
+    
+    private static CompletableFuture<ResponseEntity<?>> completed(ResponseEntity<?> response) {
+        return CompletableFuture.completedFuture(response);
+    }
+    
+    private JwtResponse issueToken(UserDetailsImpl userDetails) {
+        JwtResponse response = issueAccessToken(userDetails);
+        response.setRefreshToken(refreshTokenService.issue(userDetails.getId()));
+        return response;
+    }
+    
+    private JwtResponse issueAccessToken(UserDetailsImpl userDetails) {
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        String jwt = jwtUtils.generateJwtToken(authentication);
+        
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(item -> item.getAuthority())
+                .collect(Collectors.toList());
+        
+        return new JwtResponse(jwt,
+                               userDetails.getId(),
+                               userDetails.getUsername(),
+                               userDetails.getEmail(),
+                               roles);
     }
 }
@@ -1,12 +1,17 @@
 package com.communitysolar.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import com.communitysolar.dto.auth.MessageResponse;
+import com.communitysolar.dto.community.CommunityResponse;
+import com.communitysolar.dto.community.MemberAllocationResponse;
 import com.communitysolar.model.Community;
 import com.communitysolar.model.CommunityMember;
 import com.communitysolar.model.ERole;
@@ -16,10 +21,18 @@ import com.communitysolar.repository.CommunityMemberRepository;
 import com.communitysolar.repository.CommunityRepository;
 import com.communitysolar.repository.RoleRepository;
 import com.communitysolar.repository.UserRepository;
+import com.communitysolar.security.UserDetailsCache;
 import com.communitysolar.security.UserDetailsImpl;
+import com.communitysolar.service.CommunityListingService;
+import com.communitysolar.service.CommunityMembershipService;
+import com.communitysolar.service.CommunitySizingService;
+import com.communitysolar.service.MemberEnrollmentService;
+import com.communitysolar.util.SolarPlanCalculator;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -42,24 +55,43 @@ public class CommunityController {
     
     @Autowired
     private RoleRepository roleRepository;
+    
+    @Autowired
+    private MemberEnrollmentService memberEnrollmentService;
+    
+    @Autowired
+    private CommunityMembershipService communityMembershipService;
+    
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    
+    @Autowired
+    private CommunitySizingService communitySizingService;
+    
+    @Autowired
+    private CommunityListingService communityListingService;
+    
+    @Value("${app.solar.community.fixed-cost-per-roof}")
+    private double defaultFixedCostPerRoof;
+
+    @Value("${app.solar.community.min-cost-per-kw}")
+    private double minCostPerKw;
+
+    @Value("${app.solar.community.max-cost-per-kw}")
+    private double maxCostPerKw;
+
+    @Value("${app.solar.community.max-fixed-cost-per-roof}")
+    private double maxFixedCostPerRoof;
 
     @GetMapping
-    public ResponseEntity<List<Community>> getAllCommunities(
+    public ResponseEntity<List<CommunityResponse>> getAllCommunities(
             @RequestParam(required = false) String zipCode) {
-        
-        List<Community> communities;
-        if (zipCode != null && !zipCode.isEmpty()) {
-            communities = communityRepository.findByZipCode(zipCode);
-        } else {
-            communities = communityRepository.findAll();
-        }
-        
-        return ResponseEntity.ok(communities);
+        return ResponseEntity.ok(communityListingService.getCommunities(zipCode));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<?> getCommunityById(@PathVariable Long id) {
-        return communityRepository.findById(id)
+        return communityRepository.findResponseById(id)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -69,7 +101,8 @@ public class CommunityController {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        User user = userRepository.findById(userDetails.getId())
+        // Roles are loaded up front: they are changed below after the session has closed
+        User user = userRepository.findWithRolesById(userDetails.getId())
                 .orElseThrow(() -> new RuntimeException("Error: User is not found."));
         
         // Validate community data
@@ -88,17 +121,18 @@ public class CommunityController {
         community.setZipCode(communityRequest.getZipCode());
         community.setCreator(user);
         community.setMemberCount(1); // Creator is the first member
+        community.setTotalAllocationWeight(CommunityMember.DEFAULT_WEIGHT);
+        community.setTotalCostWeight(CommunityMember.DEFAULT_WEIGHT);
         
         Community savedCommunity = communityRepository.save(community);
         
         // Create a community member entry for the creator
         CommunityMember creatorMember = new CommunityMember();
         creatorMember.setCommunity(savedCommunity);
-        creatorMember.setUser(user);
-        creatorMember.setEnergyAllocation(100.0); // Initial full allocation
-        creatorMember.setCostShare(100.0); // Initial full cost share
+        creatorMember.setUser(user); // Sole member, so the default weight is a full share
         
         communityMemberRepository.save(creatorMember);
+        communityListingService.evictAll();
         
         // Add the admin role to the creator for this community
         Optional<Role> adminRoleOptional = roleRepository.findByName(ERole.ROLE_ADMIN);
@@ -108,11 +142,12 @@ public class CommunityController {
             userRoles.add(adminRole);
             user.setRoles(userRoles);
             userRepository.save(user);
+            userDetailsCache.invalidate(user.getUsername());
         }
         
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Community created successfully");
-        response.put("community", savedCommunity);
+        response.put("community", CommunityResponse.from(savedCommunity));
         response.put("inviteCode", savedCommunity.getInviteCode());
         
         return ResponseEntity.ok(response);
@@ -135,30 +170,73 @@ public class CommunityController {
                                 .body(new MessageResponse("Error: You are already a member of this community!"));
                     }
                     
-                    // Create a new community member
-                    CommunityMember member = new CommunityMember();
-                    member.setCommunity(community);
-                    member.setUser(user);
-                    
-                    // Default allocations
-                    member.setEnergyAllocation(0.0); // Will be adjusted when allocation is updated
-                    member.setCostShare(0.0); // Will be adjusted when cost sharing is updated
-                    
-                    communityMemberRepository.save(member);
-                    
-                    // Update community member count
-                    community.setMemberCount(community.getMemberCount() + 1);
-                    communityRepository.save(community);
+                    Community updatedCommunity = communityMembershipService.join(community, user);
                     
                     Map<String, Object> response = new HashMap<>();
                     response.put("message", "Successfully joined the community");
-                    response.put("community", community);
+                    response.put("community", CommunityResponse.from(updatedCommunity));
                     
                     return ResponseEntity.ok(response);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
+    @DeleteMapping("/{id}/members")
+    public ResponseEntity<?> leaveCommunity(@PathVariable Long id) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        
+        User user = userRepository.findById(userDetails.getId())
+                .orElseThrow(() -> new RuntimeException("Error: User is not found."));
+        
+        Optional<Community> communityOptional = communityRepository.findById(id);
+        if (!communityOptional.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Community community = communityOptional.get();
+        if (community.getCreator() != null && community.getCreator().getId().equals(user.getId())) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(new MessageResponse("Error: The community creator cannot leave the community!"));
+        }
+        
+        if (!communityMembershipService.leave(community, user)) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(new MessageResponse("Error: You are not a member of this community!"));
+        }
+        
+        return ResponseEntity.ok(new MessageResponse("Successfully left the community"));
+    }
+    
+    @PostMapping(value = "/{id}/members/bulk", consumes = { "text/csv", MediaType.APPLICATION_JSON_VALUE })
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> bulkEnrollMembers(@PathVariable Long id, HttpServletRequest request) throws IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        
+        Optional<Community> communityOptional = communityRepository.findById(id);
+        if (!communityOptional.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Community community = communityOptional.get();
+        if (community.getCreator() == null || !community.getCreator().getId().equals(userDetails.getId())) {
+            return ResponseEntity.status(403)
+                    .body(new MessageResponse("Error: Only the community creator can enroll members."));
+        }
+        
+        try {
+            Map<String, Object> result = MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                    ? memberEnrollmentService.enrollFromJson(community, request.getInputStream())
+                    : memberEnrollmentService.enrollFromCsv(community, request.getInputStream());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+    
     @PostMapping("/join-by-code")
     public ResponseEntity<?> joinCommunityByCode(@RequestBody Map<String, String> joinRequest) {
         String inviteCode = joinRequest.get("inviteCode");
@@ -192,24 +270,11 @@ public class CommunityController {
                     .body(new MessageResponse("Error: You are already a member of this community!"));
         }
         
-        // Create a new community member
-        CommunityMember member = new CommunityMember();
-        member.setCommunity(community);
-        member.setUser(user);
-        
-        // Default allocations
-        member.setEnergyAllocation(0.0);
-        member.setCostShare(0.0);
-        
-        communityMemberRepository.save(member);
-        
-        // Update community member count
-        community.setMemberCount(community.getMemberCount() + 1);
-        communityRepository.save(community);
+        Community updatedCommunity = communityMembershipService.join(community, user);
         
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Successfully joined the community");
-        response.put("community", community);
+        response.put("community", CommunityResponse.from(updatedCommunity));
         
         return ResponseEntity.ok(response);
     }
@@ -270,36 +335,108 @@ public class CommunityController {
         return ResponseEntity.ok(votingResults);
     }
     
-    @PutMapping("/{id}/allocation")
-    public ResponseEntity<?> updateEnergyAllocation(@PathVariable Long id, @RequestBody Map<String, Object> allocationData) {
+    @GetMapping("/{id}/allocation")
+    public ResponseEntity<?> getEnergyAllocation(@PathVariable Long id) {
         return communityRepository.findById(id)
                 .map(community -> {
-                    // In a real application, you would update the energy allocation for each member
-                    // based on the allocation data
+                    // One query for all members; the users come in the same join
+                    List<MemberAllocationResponse> allocations =
+                            communityMemberRepository.findAllocationsByCommunityId(community.getId());
                     
                     Map<String, Object> response = new HashMap<>();
-                    response.put("message", "Energy allocation updated successfully");
-                    response.put("community", community);
+                    response.put("communityId", community.getId());
+                    response.put("totalAllocationWeight", community.getTotalAllocationWeight());
+                    response.put("totalCostWeight", community.getTotalCostWeight());
+                    response.put("allocations", allocations);
                     
                     return ResponseEntity.ok(response);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
-    @GetMapping("/user/communities")
-    public ResponseEntity<?> getUserCommunities() {
+    @PutMapping("/{id}/allocation")
+    public ResponseEntity<?> updateEnergyAllocation(@PathVariable Long id, @RequestBody Map<String, Object> allocationData) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        User user = userRepository.findById(userDetails.getId())
-                .orElseThrow(() -> new RuntimeException("Error: User is not found."));
+        Optional<Community> communityOptional = communityRepository.findById(id);
+        if (!communityOptional.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Community community = communityOptional.get();
+        if (community.getCreator() == null || !community.getCreator().getId().equals(userDetails.getId())) {
+            return ResponseEntity.status(403)
+                    .body(new MessageResponse("Error: Only the community creator can update allocations."));
+        }
+        
+        if (!(allocationData.get("members") instanceof List<?> entries) || entries.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Member weights are required."));
+        }
+        
+        Map<Long, Double[]> weightsByUserId = new HashMap<>();
+        for (Object entry : entries) {
+            if (!(entry instanceof Map<?, ?> weights) || !(weights.get("userId") instanceof Number userId)) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Each entry needs a userId."));
+            }
+            Double allocationWeight = weights.get("allocationWeight") instanceof Number n ? n.doubleValue() : null;
+            Double costWeight = weights.get("costWeight") instanceof Number n ? n.doubleValue() : null;
+            if ((allocationWeight != null && allocationWeight < 0) || (costWeight != null && costWeight < 0)) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Weights cannot be negative."));
+            }
+            weightsByUserId.put(userId.longValue(), new Double[] { allocationWeight, costWeight });
+        }
         
-        List<CommunityMember> memberships = communityMemberRepository.findByUser(user);
+        int updated = communityMembershipService.updateWeights(community, weightsByUserId);
         
-        List<Community> communities = memberships.stream()
-                .map(CommunityMember::getCommunity)
-                .toList();
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Energy allocation updated successfully");
+        response.put("updatedMembers", updated);
+        response.put("community", communityRepository.findResponseById(id).orElseGet(() -> CommunityResponse.from(community)));
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/{id}/solar-plan")
+    public ResponseEntity<?> designCommunitySystem(@PathVariable Long id,
+                                                   @RequestBody(required = false) Map<String, Object> costData) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        
+        Optional<Community> communityOptional = communityRepository.findById(id);
+        if (!communityOptional.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Community community = communityOptional.get();
+        if (community.getCreator() == null || !community.getCreator().getId().equals(userDetails.getId())) {
+            return ResponseEntity.status(403)
+                    .body(new MessageResponse("Error: Only the community creator can design the community system."));
+        }
+        
+        Map<String, Object> inputs = costData != null ? costData : Map.of();
+        double costPerKw = inputs.get("costPerKw") instanceof Number n ? n.doubleValue() : SolarPlanCalculator.COST_PER_KW;
+        double fixedCostPerRoof = inputs.get("fixedCostPerRoof") instanceof Number n ? n.doubleValue() : defaultFixedCostPerRoof;
+        if (costPerKw <= 0 || fixedCostPerRoof < 0) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Costs must be positive."));
+        }
+        if (costPerKw < minCostPerKw || costPerKw > maxCostPerKw || fixedCostPerRoof > maxFixedCostPerRoof) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Costs must be between " + minCostPerKw
+                    + " and " + maxCostPerKw + " per kW, with at most " + maxFixedCostPerRoof + " fixed per roof."));
+        }
+        
+        try {
+            return ResponseEntity.ok(communitySizingService.optimize(community, costPerKw, fixedCostPerRoof));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/user/communities")
+    public ResponseEntity<?> getUserCommunities() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        return ResponseEntity.ok(communities);
+        return ResponseEntity.ok(communityRepository.findResponsesByMemberId(userDetails.getId()));
     }
 }
@@ -1,24 +1,38 @@
 package com.communitysolar.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import com.communitysolar.dto.auth.MessageResponse;
+import com.communitysolar.dto.solar.AddressResponse;
+import com.communitysolar.dto.solar.SolarPlanBatchRequest;
+import com.communitysolar.dto.solar.SolarPlanResponse;
 import com.communitysolar.model.Address;
+import com.communitysolar.model.Community;
 import com.communitysolar.model.SolarPlan;
 import com.communitysolar.model.User;
 import com.communitysolar.repository.AddressRepository;
+import com.communitysolar.repository.CommunityRepository;
 import com.communitysolar.repository.SolarPlanRepository;
 import com.communitysolar.repository.UserRepository;
 import com.communitysolar.security.UserDetailsImpl;
+import com.communitysolar.service.HourlySolarSimulator;
+import com.communitysolar.service.RoiSimulationService;
+import com.communitysolar.service.SolarPlanService;
+import com.communitysolar.util.SolarPlanCalculator;
 
 import jakarta.validation.Valid;
 
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/data")
@@ -27,11 +41,26 @@ public class DataCollectionController {
     @Autowired
     private AddressRepository addressRepository;
     
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CommunityRepository communityRepository;
+    
     @Autowired
     private SolarPlanRepository solarPlanRepository;
     
     @Autowired
-    private UserRepository userRepository;
+    private SolarPlanService solarPlanService;
+    
+    @Autowired
+    private RoiSimulationService roiSimulationService;
+    
+    @Autowired
+    private HourlySolarSimulator simulator;
+    
+    @Value("${app.solar.batch.max-addresses}")
+    private int maxBatchAddresses;
 
     @PostMapping("/addresses")
     public ResponseEntity<?> submitAddress(@Valid @RequestBody Address addressRequest) {
@@ -79,16 +108,16 @@ public class DataCollectionController {
         address.setRoofType(addressRequest.getRoofType());
         
         // Simulate calculating solar potential
-        double solarPotential = calculateSolarPotential(
+        double solarPotential = SolarPlanCalculator.calculateSolarPotential(
                 addressRequest.getMonthlyUsage(),
-                addressRequest.getRoofType(),
-                addressRequest.getHomeSize());
+                addressRequest.getHomeSize(),
+                simulator.specificYield(addressRequest.getZipCode(), addressRequest.getRoofType()));
         
         address.setSolarPotential(solarPotential);
         
         Address savedAddress = addressRepository.save(address);
         
-        return ResponseEntity.ok(savedAddress);
+        return ResponseEntity.ok(AddressResponse.from(savedAddress));
     }
 
     @GetMapping("/addresses/{addressId}/solar-potential")
@@ -96,26 +125,67 @@ public class DataCollectionController {
         return addressRepository.findById(addressId)
                 .map(address -> {
                     Map<String, Object> response = new HashMap<>();
-                    response.put("address", address);
+                    response.put("address", AddressResponse.from(address));
                     response.put("solarPotential", address.getSolarPotential());
                     return ResponseEntity.ok(response);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    @PostMapping("/solar-plans/batch")
+    public ResponseEntity<?> calculateSolarPlans(@RequestBody SolarPlanBatchRequest request) {
+        List<Long> addressIds = request.getAddressIds() != null ? request.getAddressIds() : List.of();
+        if (addressIds.isEmpty() == (request.getCommunityId() == null)) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Provide either addressIds or communityId."));
+        }
+        
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        boolean isAdmin = authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        
+        List<Address> addresses;
+        Set<Long> missingIds = new LinkedHashSet<>();
+        if (request.getCommunityId() != null) {
+            Community community = communityRepository.findById(request.getCommunityId()).orElse(null);
+            if (community == null) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Community not found."));
+            }
+            // A whole community's plans are for its creator or an admin to run
+            if (!isAdmin && (community.getCreator() == null || !community.getCreator().getId().equals(userDetails.getId()))) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new MessageResponse(
+                        "Error: Only the community's creator can calculate plans for all of its members."));
+            }
+            addresses = addressRepository.findByCommunityId(request.getCommunityId());
+        } else {
+            if (addressIds.size() > maxBatchAddresses) {
+                return ResponseEntity.badRequest().body(new MessageResponse(
+                        "Error: A batch may contain at most " + maxBatchAddresses + " addresses."));
+            }
+            missingIds.addAll(addressIds);
+            addresses = addressRepository.findAllById(missingIds);
+            addresses.forEach(address -> missingIds.remove(address.getId()));
+            if (!isAdmin && addresses.stream().anyMatch(address -> !address.getUser().getId().equals(userDetails.getId()))) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new MessageResponse(
+                        "Error: You can only calculate plans for your own addresses."));
+            }
+        }
+        
+        if (addresses.size() > maxBatchAddresses) {
+            return ResponseEntity.badRequest().body(new MessageResponse(
+                    "Error: A batch may contain at most " + maxBatchAddresses + " addresses."));
+        }
+        
+        Map<String, Object> response = solarPlanService.generateBatch(addresses, missingIds);
+        response.put("communityId", request.getCommunityId());
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/addresses/{addressId}/solar-plan")
     public ResponseEntity<?> calculateSolarPlan(@PathVariable Long addressId, @RequestBody Map<String, Object> energyData) {
         return addressRepository.findById(addressId)
                 .map(address -> {
-                    // Extract data from the energy data
-                    Double monthlyUsage = null;
-                    if (energyData.containsKey("monthlyUsage")) {
-                        if (energyData.get("monthlyUsage") instanceof Integer) {
-                            monthlyUsage = ((Integer) energyData.get("monthlyUsage")).doubleValue();
-                        } else if (energyData.get("monthlyUsage") instanceof Double) {
-                            monthlyUsage = (Double) energyData.get("monthlyUsage");
-                        }
-                    }
+                    Double monthlyUsage = SolarPlanCalculator.toDouble(energyData.get("monthlyUsage"));
+                    Double monthlyBill = SolarPlanCalculator.toDouble(energyData.get("monthlyBill"));
                     
                     // Check for zero consumption
                     if (monthlyUsage != null && monthlyUsage <= 0) {
@@ -126,10 +196,15 @@ public class DataCollectionController {
                     }
                     
                     // Simulate calculating a solar plan based on address and energy data
-                    SolarPlan solarPlan = generateSolarPlan(address, energyData);
-                    SolarPlan savedPlan = solarPlanRepository.save(solarPlan);
-                    
-                    return ResponseEntity.ok(savedPlan);
+                    // An unchanged request returns the plan already stored for the same inputs
+                    SolarPlan solarPlan = solarPlanService.findOrCreate(address, monthlyUsage, monthlyBill);
+                    if (solarPlan == null) {
+                        Map<String, Object> errorResponse = new HashMap<>();
+                        errorResponse.put("message", "Insufficient data to generate a solar plan.");
+                        errorResponse.put("error", "No energy consumption is recorded for this address.");
+                        return ResponseEntity.badRequest().body(errorResponse);
+                    }
+                    return ResponseEntity.ok(SolarPlanResponse.from(solarPlan));
                 })
                 .orElseGet(() -> {
                     // If addressId doesn't exist, return an error message
@@ -139,97 +214,34 @@ public class DataCollectionController {
                     return ResponseEntity.badRequest().body(errorResponse);
                 });
     }
-    
-    private double calculateSolarPotential(Double monthlyUsage, String roofType, Integer homeSize) {
-        // Simplified algorithm for demo purposes
-        if (monthlyUsage == null || monthlyUsage <= 0) {
-            return 0.0; // No potential if no usage data
-        }
-        
-        double basePotential = monthlyUsage * 0.8; // 80% of current usage
-        
-        // Adjust based on roof type
-        double roofFactor = 1.0;
-        if (roofType != null) {
-            switch (roofType) {
-                case "flat":
-                    roofFactor = 0.9;
-                    break;
-                case "sloped":
-                    roofFactor = 1.1;
-                    break;
-                case "metal":
-                    roofFactor = 1.05;
-                    break;
-                case "tile":
-                    roofFactor = 0.95;
-                    break;
-                default:
-                    roofFactor = 1.0;
-            }
-        }
-        
-        // Adjust based on home size
-        double sizeFactor = homeSize != null ? Math.min(1.5, homeSize / 1000.0) : 1.0;
-        
-        return basePotential * roofFactor * sizeFactor;
-    }
-    
-    private SolarPlan generateSolarPlan(Address address, Map<String, Object> energyData) {
-        SolarPlan plan = new SolarPlan();
-        plan.setAddress(address);
-        
-        // Extract data from the energy data
-        Double monthlyUsage = null;
-        if (energyData.containsKey("monthlyUsage")) {
-            if (energyData.get("monthlyUsage") instanceof Integer) {
-                monthlyUsage = ((Integer) energyData.get("monthlyUsage")).doubleValue();
-            } else if (energyData.get("monthlyUsage") instanceof Double) {
-                monthlyUsage = (Double) energyData.get("monthlyUsage");
-            }
+
+    @GetMapping("/solar-plans/{planId}/roi-distribution")
+    public ResponseEntity<?> getRoiDistribution(@PathVariable Long planId,
+                                                @RequestParam(defaultValue = "10000") int scenarios,
+                                                @RequestParam(required = false) Long seed) {
+        if (scenarios < 1 || scenarios > roiSimulationService.getMaxScenarios()) {
+            return ResponseEntity.badRequest().body(new MessageResponse(
+                    "Error: Scenarios must be between 1 and " + roiSimulationService.getMaxScenarios() + "."));
         }
         
-        Double monthlyBill = null;
-        if (energyData.containsKey("monthlyBill")) {
-            if (energyData.get("monthlyBill") instanceof Integer) {
-                monthlyBill = ((Integer) energyData.get("monthlyBill")).doubleValue();
-            } else if (energyData.get("monthlyBill") instanceof Double) {
-                monthlyBill = (Double) energyData.get("monthlyBill");
-            }
+        SolarPlan plan = solarPlanRepository.findById(planId).orElse(null);
+        if (plan == null) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Solar plan not found."));
         }
-        
-        // Use address energy data if not provided in the request
-        if (monthlyUsage == null) {
-            monthlyUsage = address.getMonthlyUsage();
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        boolean isAdmin = authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        User owner = plan.getAddress() != null ? plan.getAddress().getUser() : null;
+        if (!isAdmin && (owner == null || !owner.getId().equals(userDetails.getId()))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new MessageResponse(
+                    "Error: You can only simulate returns for plans at your own addresses."));
         }
-        if (monthlyBill == null) {
-            monthlyBill = address.getMonthlyBill();
+        if (plan.getAddress() == null || plan.getMonthlyUsageKwh() == null || plan.getMonthlyUsageKwh() <= 0) {
+            return ResponseEntity.badRequest().body(new MessageResponse(
+                    "Error: The plan has no energy consumption to price savings against."));
         }
         
-        // Calculate system size (kW)
-        // Assuming 100 kWh per month per kW of solar capacity in India
-        double systemSizeKw = monthlyUsage / 100.0;
-        plan.setSystemSizeKw(systemSizeKw);
-        
-        // Calculate annual production
-        // 1500 kWh per kW per year is typical in many parts of India
-        double annualProduction = systemSizeKw * 1500.0;
-        plan.setEstimatedProductionKwh(annualProduction);
-        
-        // Calculate panel count (assuming 350W panels)
-        int panelCount = (int) Math.ceil((systemSizeKw * 1000) / 350.0);
-        plan.setPanelCount(panelCount);
-        
-        // Calculate estimated cost
-        // Approx. ₹60,000 per kW installed for good quality system in India
-        double estimatedCost = systemSizeKw * 60000.0;
-        plan.setEstimatedCost(estimatedCost);
-        
-        // Calculate ROI in years
-        double annualSavings = monthlyBill * 12.0 * 0.9; // Assuming 90% bill savings
-        double roiYears = estimatedCost / annualSavings;
-        plan.setRoiYears(roiYears);
-        
-        return plan;
+        return ResponseEntity.ok(roiSimulationService.simulate(plan, scenarios, seed));
     }
 }
@@ -8,6 +8,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import com.communitysolar.dto.auth.MessageResponse;
+import com.communitysolar.dto.solar.ElectricityUsageResponse;
 import com.communitysolar.model.ElectricityUsage;
 import com.communitysolar.model.User;
 import com.communitysolar.repository.ElectricityUsageRepository;
@@ -36,10 +37,7 @@ public class ElectricityUsageController {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        User user = userRepository.findById(userDetails.getId())
-                .orElseThrow(() -> new RuntimeException("Error: User is not found."));
-        
-        List<ElectricityUsage> usageData = electricityUsageRepository.findByUser(user);
+        List<ElectricityUsageResponse> usageData = electricityUsageRepository.findResponsesByUserId(userDetails.getId());
         
         return ResponseEntity.ok(usageData);
     }
@@ -80,21 +78,22 @@ public class ElectricityUsageController {
                 }
             }
             
-            // Save each bill entry as a separate ElectricityUsage record
-            List<ElectricityUsage> savedData = bills.stream()
+            // One ElectricityUsage record per bill entry, inserted as a single batch
+            List<ElectricityUsage> usages = bills.stream()
                     .map(bill -> {
                         ElectricityUsage usage = new ElectricityUsage();
                         usage.setUser(user);
                         usage.setPeriod((String) bill.get("period"));
                         usage.setUnits(((Number) bill.get("units")).doubleValue());
                         usage.setAmount(((Number) bill.get("amount")).doubleValue());
-                        return electricityUsageRepository.save(usage);
+                        return usage;
                     })
                     .collect(Collectors.toList());
+            List<ElectricityUsage> savedData = electricityUsageRepository.saveAll(usages);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Electricity usage data submitted successfully");
-            response.put("data", savedData);
+            response.put("data", savedData.stream().map(ElectricityUsageResponse::from).toList());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
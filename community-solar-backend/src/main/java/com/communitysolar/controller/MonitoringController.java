@@ -2,15 +2,30 @@
 package com.communitysolar.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.communitysolar.dto.auth.MessageResponse;
+import com.communitysolar.dto.monitoring.EnergyReadingRequest;
+import com.communitysolar.dto.monitoring.SettlementRunResponse;
 import com.communitysolar.model.*;
 import com.communitysolar.repository.*;
 import com.communitysolar.security.UserDetailsImpl;
-import com.communitysolar.util.TNEBTariffCalculator;
+import com.communitysolar.service.EnergyDataIngestionService;
+import com.communitysolar.service.InstallationPerformanceService;
+import com.communitysolar.service.MonitoringQueryService;
+import com.communitysolar.service.NetMeteringSettlementJob;
+import com.communitysolar.service.ProviderDashboardService;
+
+import jakarta.persistence.EntityManagerFactory;
 
 import java.time.*;
 import java.util.*;
@@ -19,6 +34,10 @@ import java.util.*;
 @RequestMapping("/monitoring")
 public class MonitoringController {
 
+    private static final int MAX_TIMELINE_PAGE = 100;
+
+    private static final int MAX_HISTORY_PAGE = 100;
+
     @Autowired
     private InstallationRepository installationRepository;
 
@@ -26,18 +45,48 @@ public class MonitoringController {
     private InstallationUpdateRepository updateRepository;
 
     @Autowired
-    private SolarUsageRepository solarUsageRepository;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProviderDashboardService providerDashboardService;
+
+    @Autowired
+    private EnergyDataIngestionService energyDataIngestionService;
+
+    @Autowired
+    private InstallationPerformanceService performanceService;
+
+    @Autowired
+    private NetMeteringSettlementJob settlementJob;
+
+    @Autowired
+    private SettlementRunRepository settlementRunRepository;
+
+    @Autowired
+    private MonitoringQueryService monitoringQueryService;
+
+    @Value("${app.monitoring.ingest.max-batch}")
+    private int maxIngestBatch;
 
     @GetMapping("/installation/{installationId}/progress")
-    public ResponseEntity<?> getInstallationProgress(@PathVariable Long installationId) {
-        return installationRepository.findById(installationId)
-            .map(installation -> {
-                Map<String, Object> response = new HashMap<>();
-                response.put("currentProgress", installation.getCurrentProgress());
-                response.put("isGenerating", installation.isGenerating());
-                response.put("updates", updateRepository.findByInstallationOrderByUpdateTimeDesc(installation));
-                return ResponseEntity.ok(response);
-            })
+    public ResponseEntity<?> getInstallationProgress(
+            @PathVariable Long installationId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        
+        if (limit < 1 || limit > MAX_TIMELINE_PAGE) {
+            return ResponseEntity.badRequest().body(new MessageResponse(
+                    "Error: Limit must be between 1 and " + MAX_TIMELINE_PAGE + "."));
+        }
+        String[] position = null;
+        if (cursor != null) {
+            position = MonitoringQueryService.decodeCursor(cursor);
+            if (position == null) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Invalid cursor."));
+            }
+        }
+        return monitoringQueryService.progress(installationId, position, limit)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
             .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -57,12 +106,15 @@ public class MonitoringController {
                 
                 installation.setCurrentProgress((Integer) updateData.get("progress"));
                 if ((Integer) updateData.get("progress") == 100) {
-                    installation.setIsGenerating(true);
+                    installation.setGenerating(true);
                     installation.setGenerationStartDate(LocalDateTime.now());
                 }
                 
                 installationRepository.save(installation);
                 updateRepository.save(update);
+                if (installation.getProvider() != null) {
+                    providerDashboardService.evict(installation.getProvider().getId());
+                }
                 
                 return ResponseEntity.ok(Map.of(
                     "message", "Progress updated successfully",
@@ -73,6 +125,94 @@ public class MonitoringController {
             .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    @PostMapping("/energy-data")
+    @PreAuthorize("hasRole('PROVIDER') or hasRole('ADMIN')")
+    public ResponseEntity<?> ingestEnergyData(@RequestBody List<EnergyReadingRequest> readings) {
+        if (readings == null || readings.isEmpty() || readings.size() > maxIngestBatch) {
+            return ResponseEntity.badRequest().body(new MessageResponse(
+                    "Error: Send between 1 and " + maxIngestBatch + " readings per request."));
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        boolean isAdmin = authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        return ResponseEntity.ok(energyDataIngestionService.ingest(readings, isAdmin ? null : userDetails.getId()));
+    }
+
+    @GetMapping("/installation/{installationId}/alerts")
+    public ResponseEntity<?> getInstallationAlerts(
+            @PathVariable Long installationId,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE) {
+            return ResponseEntity.badRequest().body(new MessageResponse(
+                    "Error: Limit must be between 1 and " + MAX_HISTORY_PAGE + "."));
+        }
+        return monitoringQueryService.alerts(installationId, limit)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/installation/{installationId}/performance")
+    public ResponseEntity<?> getInstallationPerformance(@PathVariable Long installationId) {
+        return monitoringQueryService.performance(installationId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/installation/{installationId}/performance/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildInstallationPerformance(@PathVariable Long installationId) {
+        return installationRepository.findById(installationId)
+            .<ResponseEntity<?>>map(installation -> ResponseEntity.ok(performanceService.kpis(installation,
+                    performanceService.rebuild(installationId))))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/settlements/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> runSettlement(@RequestParam String month) {
+        YearMonth billingMonth;
+        try {
+            billingMonth = YearMonth.parse(month);
+        } catch (DateTimeException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Month must be in the form YYYY-MM."));
+        }
+        if (!billingMonth.isBefore(YearMonth.now())) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: Only completed months can be settled."));
+        }
+        Optional<SettlementRun> run = settlementJob.start(billingMonth);
+        if (run.isEmpty()) {
+            return ResponseEntity.status(409).body(new MessageResponse(settlementRunRepository.findByActiveTrue()
+                    .map(active -> "Error: Settlement run " + active.getId() + " is already in progress.")
+                    .orElse("Error: A settlement run is already in progress.")));
+        }
+        // Poll the run's status at the Location given
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/monitoring/settlements/runs/{id}").buildAndExpand(run.get().getId()).toUri())
+                .body(SettlementRunResponse.from(run.get()));
+    }
+
+    @GetMapping("/settlements/runs/{runId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getSettlementRun(@PathVariable Long runId) {
+        return settlementRunRepository.findById(runId)
+            .<ResponseEntity<?>>map(run -> ResponseEntity.ok(SettlementRunResponse.from(run)))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/installation/{installationId}/settlements")
+    public ResponseEntity<?> getInstallationSettlements(
+            @PathVariable Long installationId,
+            @RequestParam(defaultValue = "12") int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE) {
+            return ResponseEntity.badRequest().body(new MessageResponse(
+                    "Error: Limit must be between 1 and " + MAX_HISTORY_PAGE + "."));
+        }
+        return monitoringQueryService.settlements(installationId, limit)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/usage/{userId}")
     public ResponseEntity<?> getUserSolarUsage(
             @PathVariable Long userId,
@@ -86,50 +226,36 @@ public class MonitoringController {
             return ResponseEntity.status(403).build();
         }
         
-        LocalDateTime start;
-        LocalDateTime end = LocalDateTime.now();
-        
-        switch (period != null ? period : "monthly") {
-            case "daily":
-                start = end.minusDays(1);
-                break;
-            case "weekly":
-                start = end.minusWeeks(1);
-                break;
-            case "yearly":
-                start = end.minusYears(1);
-                break;
-            case "monthly":
-            default:
-                start = end.minusMonths(1);
+        return ResponseEntity.ok(monitoringQueryService.usage(userId, period));
+    }
+
+    @GetMapping("/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getCacheStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> regions = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            long lookups = region.getHitCount() + region.getMissCount();
+
+            Map<String, Object> regionStats = new HashMap<>();
+            regionStats.put("hits", region.getHitCount());
+            regionStats.put("misses", region.getMissCount());
+            regionStats.put("puts", region.getPutCount());
+            regionStats.put("hitRatio", lookups > 0 ? (double) region.getHitCount() / lookups : 0.0);
+            regions.put(regionName, regionStats);
         }
-        
-        User user = new User();
-        user.setId(userId);
-        
-        List<SolarUsage> usageData = solarUsageRepository.findByUserAndReadingTimestampBetween(user, start, end);
-        
-        double totalSolarUsed = usageData.stream()
-            .mapToDouble(SolarUsage::getSolarEnergyUsed)
-            .sum();
-            
-        double totalGridUsed = usageData.stream()
-            .mapToDouble(SolarUsage::getGridEnergyUsed)
-            .sum();
-            
-        double billWithoutSolar = TNEBTariffCalculator.calculateBill(totalSolarUsed + totalGridUsed);
-        double actualBill = TNEBTariffCalculator.calculateBill(totalGridUsed);
-        double savings = billWithoutSolar - actualBill;
-        
+
+        long queryLookups = statistics.getQueryCacheHitCount() + statistics.getQueryCacheMissCount();
+
         Map<String, Object> response = new HashMap<>();
-        response.put("period", period);
-        response.put("solarUsage", totalSolarUsed);
-        response.put("gridUsage", totalGridUsed);
-        response.put("billWithoutSolar", billWithoutSolar);
-        response.put("actualBill", actualBill);
-        response.put("savings", savings);
-        response.put("usageData", usageData);
-        
+        response.put("regions", regions);
+        response.put("queryCacheHitRatio", queryLookups > 0 ? (double) statistics.getQueryCacheHitCount() / queryLookups : 0.0);
+        response.put("statisticsSince", statistics.getStart().toString());
         return ResponseEntity.ok(response);
     }
 }
@@ -8,26 +8,23 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import com.communitysolar.dto.auth.MessageResponse;
+import com.communitysolar.dto.payment.PaymentResponse;
 import com.communitysolar.model.Community;
-import com.communitysolar.model.CommunityMember;
-import com.communitysolar.model.ElectricityUsage;
 import com.communitysolar.model.Payment;
 import com.communitysolar.model.User;
 import com.communitysolar.repository.CommunityMemberRepository;
 import com.communitysolar.repository.CommunityRepository;
-import com.communitysolar.repository.ElectricityUsageRepository;
 import com.communitysolar.repository.PaymentRepository;
 import com.communitysolar.repository.UserRepository;
 import com.communitysolar.security.UserDetailsImpl;
+import com.communitysolar.service.PaymentQueryService;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -46,7 +43,7 @@ public class PaymentController {
     private CommunityMemberRepository communityMemberRepository;
     
     @Autowired
-    private ElectricityUsageRepository electricityUsageRepository;
+    private PaymentQueryService paymentQueryService;
     
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getUserPayments(@PathVariable Long userId) {
@@ -58,20 +55,12 @@ public class PaymentController {
             return ResponseEntity.status(403).body(new MessageResponse("You are not authorized to view these payments"));
         }
         
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        List<Payment> payments = paymentRepository.findByUser(user);
-        return ResponseEntity.ok(payments);
+        return ResponseEntity.ok(paymentQueryService.userPayments(userId));
     }
     
     @GetMapping("/community/{communityId}")
     public ResponseEntity<?> getCommunityPayments(@PathVariable Long communityId) {
-        Community community = communityRepository.findById(communityId)
-                .orElseThrow(() -> new RuntimeException("Community not found"));
-        
-        List<Payment> payments = paymentRepository.findByCommunity(community);
-        return ResponseEntity.ok(payments);
+        return ResponseEntity.ok(paymentQueryService.communityPayments(communityId));
     }
     
     @PostMapping("/calculate-quote-split")
@@ -80,68 +69,11 @@ public class PaymentController {
         Long communityId = Long.parseLong(quoteData.get("communityId").toString());
         Double totalQuoteAmount = Double.parseDouble(quoteData.get("quoteAmount").toString());
         
-        // Get the community
-        Community community = communityRepository.findById(communityId)
-                .orElseThrow(() -> new RuntimeException("Community not found"));
-        
-        // Get all members of the community
-        List<CommunityMember> members = communityMemberRepository.findByCommunity(community);
-        
-        if (members.isEmpty()) {
+        Map<String, Object> response = paymentQueryService.quoteSplit(communityId, totalQuoteAmount);
+        if (response == null) {
             return ResponseEntity.badRequest().body(new MessageResponse("No members found in this community"));
         }
         
-        // Calculate the total electricity usage for all members
-        double totalUsage = 0.0;
-        Map<Long, Double> userUsage = new HashMap<>();
-        
-        for (CommunityMember member : members) {
-            User user = member.getUser();
-            List<ElectricityUsage> usageData = electricityUsageRepository.findByUser(user);
-            
-            // Calculate average usage for this user
-            double avgUsage = 0.0;
-            if (!usageData.isEmpty()) {
-                double sum = usageData.stream().mapToDouble(ElectricityUsage::getUnits).sum();
-                avgUsage = sum / usageData.size();
-            }
-            
-            userUsage.put(user.getId(), avgUsage);
-            totalUsage += avgUsage;
-        }
-        
-        // Calculate payment amount for each user based on their proportion of usage
-        List<Map<String, Object>> paymentBreakdown = new ArrayList<>();
-        
-        for (CommunityMember member : members) {
-            User user = member.getUser();
-            double userAvgUsage = userUsage.get(user.getId());
-            
-            // Skip users with no usage data
-            if (userAvgUsage <= 0) {
-                continue;
-            }
-            
-            double proportion = userAvgUsage / totalUsage;
-            double paymentAmount = totalQuoteAmount * proportion;
-            
-            Map<String, Object> userPayment = new HashMap<>();
-            userPayment.put("userId", user.getId());
-            userPayment.put("username", user.getUsername());
-            userPayment.put("avgUsage", userAvgUsage);
-            userPayment.put("proportion", proportion);
-            userPayment.put("fullPaymentAmount", paymentAmount);
-            userPayment.put("monthlyInstallment", paymentAmount / 12);
-            
-            paymentBreakdown.add(userPayment);
-        }
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("communityId", communityId);
-        response.put("totalQuoteAmount", totalQuoteAmount);
-        response.put("totalUsage", totalUsage);
-        response.put("paymentBreakdown", paymentBreakdown);
-        
         return ResponseEntity.ok(response);
     }
     
@@ -213,7 +145,7 @@ public class PaymentController {
         
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Payment plan created successfully");
-        response.put("payments", savedPayments);
+        response.put("payments", savedPayments.stream().map(PaymentResponse::from).toList());
         
         return ResponseEntity.ok(response);
     }
@@ -246,7 +178,7 @@ public class PaymentController {
         
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Payment processed successfully");
-        response.put("payment", savedPayment);
+        response.put("payment", PaymentResponse.from(savedPayment));
         
         return ResponseEntity.ok(response);
     }
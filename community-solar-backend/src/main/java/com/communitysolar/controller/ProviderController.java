@@ -8,6 +8,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import com.communitysolar.dto.auth.MessageResponse;
+import com.communitysolar.dto.provider.ProviderResponse;
 import com.communitysolar.model.Community;
 import com.communitysolar.model.Provider;
 import com.communitysolar.model.User;
@@ -15,6 +16,7 @@ import com.communitysolar.repository.CommunityRepository;
 import com.communitysolar.repository.ProviderRepository;
 import com.communitysolar.repository.UserRepository;
 import com.communitysolar.security.UserDetailsImpl;
+import com.communitysolar.service.ProviderDashboardService;
 
 import jakarta.validation.Valid;
 
@@ -28,6 +30,8 @@ import java.util.Optional;
 @RequestMapping("/api/providers")
 public class ProviderController {
 
+    private static final int MAX_PROJECTS_PAGE = 100;
+
     @Autowired
     private ProviderRepository providerRepository;
     
@@ -36,16 +40,19 @@ public class ProviderController {
     
     @Autowired
     private CommunityRepository communityRepository;
+    
+    @Autowired
+    private ProviderDashboardService providerDashboardService;
 
     @GetMapping
-    public ResponseEntity<List<Provider>> getAllProviders() {
-        List<Provider> providers = providerRepository.findAll();
+    public ResponseEntity<List<ProviderResponse>> getAllProviders() {
+        List<ProviderResponse> providers = providerRepository.findAllResponses();
         return ResponseEntity.ok(providers);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<?> getProviderById(@PathVariable Long id) {
-        return providerRepository.findById(id)
+        return providerRepository.findResponseById(id)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -83,7 +90,7 @@ public class ProviderController {
         
         Provider savedProvider = providerRepository.save(provider);
         
-        return ResponseEntity.ok(savedProvider);
+        return ResponseEntity.ok(providerRepository.findResponseById(savedProvider.getId()).orElseThrow());
     }
 
     @PutMapping("/{id}")
@@ -107,7 +114,7 @@ public class ProviderController {
                         provider.setYearsExperience(providerRequest.getYearsExperience());
                         
                         Provider updatedProvider = providerRepository.save(provider);
-                        return ResponseEntity.ok(updatedProvider);
+                        return ResponseEntity.ok(providerRepository.findResponseById(updatedProvider.getId()).orElseThrow());
                     } else {
                         return ResponseEntity.status(403).body(new MessageResponse("Error: You are not authorized to update this provider profile!"));
                     }
@@ -137,7 +144,7 @@ public class ProviderController {
                 .orElseThrow(() -> new RuntimeException("Error: User is not found."));
         
         return providerRepository.findById(providerId)
-                .map(provider -> {
+                .<ResponseEntity<?>>map(provider -> {
                     // In a real implementation, save the quote request to a database
                     // For now, just return a success message
                     
@@ -242,7 +249,7 @@ public class ProviderController {
         // In a real implementation, this would update a project record to mark this provider as selected
         
         return providerRepository.findById(providerId)
-                .map(provider -> {
+                .<ResponseEntity<?>>map(provider -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("message", "Provider selected as winner");
                     response.put("providerId", providerId);
@@ -258,7 +265,14 @@ public class ProviderController {
     
     @GetMapping("/projects/active")
     @PreAuthorize("hasRole('PROVIDER')")
-    public ResponseEntity<?> getActiveProjects() {
+    public ResponseEntity<?> getActiveProjects(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > MAX_PROJECTS_PAGE) {
+            return ResponseEntity.badRequest().body(new MessageResponse(
+                    "Error: Page must not be negative and size must be between 1 and " + MAX_PROJECTS_PAGE + "."));
+        }
+        
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
@@ -272,34 +286,7 @@ public class ProviderController {
                     .body(new MessageResponse("Error: No provider profile found for this user!"));
         }
         
-        // In a real implementation, retrieve actual active projects from a database
-        // For demo purposes, return sample active projects
-        List<Map<String, Object>> activeProjects = new ArrayList<>();
-        
-        Map<String, Object> project1 = new HashMap<>();
-        project1.put("projectId", 101L);
-        project1.put("communityId", 1L);
-        project1.put("communityName", "Green Valley Solar Community");
-        project1.put("location", "Bangalore, Karnataka");
-        project1.put("systemSizeKw", 25.5);
-        project1.put("startDate", "2023-06-01");
-        project1.put("status", "in-progress");
-        project1.put("progress", 65);
-        
-        Map<String, Object> project2 = new HashMap<>();
-        project2.put("projectId", 102L);
-        project2.put("communityId", 3L);
-        project2.put("communityName", "Eco Friendly Community");
-        project2.put("location", "Mumbai, Maharashtra");
-        project2.put("systemSizeKw", 18.2);
-        project2.put("startDate", "2023-06-15");
-        project2.put("status", "planning");
-        project2.put("progress", 15);
-        
-        activeProjects.add(project1);
-        activeProjects.add(project2);
-        
-        return ResponseEntity.ok(activeProjects);
+        return ResponseEntity.ok(providerDashboardService.getProjects(providerOpt.get().getId(), page, size));
     }
     
     @PutMapping("/projects/{projectId}/progress")
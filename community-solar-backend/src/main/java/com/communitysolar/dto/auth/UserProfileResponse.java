@@ -0,0 +1,34 @@
+package com.communitysolar.dto.auth;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class UserProfileResponse {
+    private Long id;
+
+    private String username;
+
+    private String email;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String phoneNumber;
+
+    private List<String> roles;
+
+    public UserProfileResponse(Long id, String username, String email, String firstName, String lastName,
+                               String phoneNumber) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phoneNumber = phoneNumber;
+    }
+}
@@ -0,0 +1,46 @@
+package com.communitysolar.dto.community;
+
+import java.time.LocalDateTime;
+
+import com.communitysolar.model.Community;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommunityResponse {
+    private Long id;
+
+    private String name;
+
+    private String description;
+
+    private String location;
+
+    private String zipCode;
+
+    private String inviteCode;
+
+    private Integer memberCount;
+
+    private Double totalAllocationWeight;
+
+    private Double totalCostWeight;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private Long creatorId;
+
+    public static CommunityResponse from(Community community) {
+        return new CommunityResponse(community.getId(), community.getName(), community.getDescription(),
+                community.getLocation(), community.getZipCode(), community.getInviteCode(),
+                community.getMemberCount(), community.getTotalAllocationWeight(), community.getTotalCostWeight(),
+                community.getCreatedAt(), community.getUpdatedAt(),
+                community.getCreator() != null ? community.getCreator().getId() : null);
+    }
+}
@@ -0,0 +1,33 @@
+package com.communitysolar.dto.community;
+
+import com.communitysolar.model.CommunityMember;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class MemberAllocationResponse {
+    private Long userId;
+
+    private String username;
+
+    private Double allocationWeight;
+
+    private double energyAllocation;
+
+    private Double costWeight;
+
+    private double costShare;
+
+    // Used by the JPQL projection in CommunityMemberRepository
+    public MemberAllocationResponse(Long userId, String username, Double allocationWeight,
+            Double totalAllocationWeight, Double costWeight, Double totalCostWeight) {
+        this.userId = userId;
+        this.username = username;
+        this.allocationWeight = allocationWeight;
+        this.energyAllocation = CommunityMember.percentOf(allocationWeight, totalAllocationWeight);
+        this.costWeight = costWeight;
+        this.costShare = CommunityMember.percentOf(costWeight, totalCostWeight);
+    }
+}
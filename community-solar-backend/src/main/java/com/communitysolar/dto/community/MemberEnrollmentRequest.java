@@ -0,0 +1,16 @@
+package com.communitysolar.dto.community;
+
+import lombok.Data;
+
+@Data
+public class MemberEnrollmentRequest {
+    private String username;
+
+    private String email;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String phoneNumber;
+}
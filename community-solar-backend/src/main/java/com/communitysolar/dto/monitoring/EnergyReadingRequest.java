@@ -0,0 +1,20 @@
+package com.communitysolar.dto.monitoring;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+@Data
+public class EnergyReadingRequest {
+    private Long installationId;
+
+    private LocalDateTime timestamp;
+
+    private Double energyProduced;
+
+    private Double energyConsumed;
+
+    private Double gridImported;
+
+    private Double gridExported;
+}
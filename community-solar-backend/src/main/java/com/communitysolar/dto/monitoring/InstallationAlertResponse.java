@@ -0,0 +1,36 @@
+package com.communitysolar.dto.monitoring;
+
+import java.time.LocalDateTime;
+
+import com.communitysolar.model.InstallationAlert;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstallationAlertResponse {
+    private Long id;
+
+    private Long installationId;
+
+    private LocalDateTime intervalStart;
+
+    private Double actualKwhPerKw;
+
+    private Double baselineKwhPerKw;
+
+    private Double neighbourKwhPerKw;
+
+    private LocalDateTime detectedAt;
+
+    private LocalDateTime resolvedAt;
+
+    public static InstallationAlertResponse from(InstallationAlert alert) {
+        return new InstallationAlertResponse(alert.getId(), alert.getInstallation().getId(),
+                alert.getIntervalStart(), alert.getActualKwhPerKw(), alert.getBaselineKwhPerKw(),
+                alert.getNeighbourKwhPerKw(), alert.getDetectedAt(), alert.getResolvedAt());
+    }
+}
@@ -0,0 +1,22 @@
+package com.communitysolar.dto.monitoring;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstallationUpdateResponse {
+    private Long id;
+
+    private Integer progressPercentage;
+
+    private String updateNotes;
+
+    private LocalDateTime updateTime;
+
+    private boolean completed;
+}
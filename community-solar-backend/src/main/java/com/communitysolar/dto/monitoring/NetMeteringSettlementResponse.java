@@ -0,0 +1,51 @@
+package com.communitysolar.dto.monitoring;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.communitysolar.model.NetMeteringSettlement;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NetMeteringSettlementResponse {
+    private Long id;
+
+    private Long installationId;
+
+    private LocalDate billingMonth;
+
+    private long intervals;
+
+    private double importedKwh;
+
+    private double exportedKwh;
+
+    private double bankedInKwh;
+
+    private double billedKwh;
+
+    private double bankedOutKwh;
+
+    private double creditedKwh;
+
+    private double importCharge;
+
+    private double exportCredit;
+
+    private double amountDue;
+
+    private LocalDateTime settledAt;
+
+    public static NetMeteringSettlementResponse from(NetMeteringSettlement settlement) {
+        return new NetMeteringSettlementResponse(settlement.getId(), settlement.getInstallation().getId(),
+                settlement.getBillingMonth(), settlement.getIntervals(), settlement.getImportedKwh(),
+                settlement.getExportedKwh(), settlement.getBankedInKwh(), settlement.getBilledKwh(),
+                settlement.getBankedOutKwh(), settlement.getCreditedKwh(), settlement.getImportCharge(),
+                settlement.getExportCredit(), settlement.getAmountDue(), settlement.getSettledAt());
+    }
+}
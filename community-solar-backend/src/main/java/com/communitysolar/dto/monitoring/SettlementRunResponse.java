@@ -0,0 +1,46 @@
+package com.communitysolar.dto.monitoring;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import com.communitysolar.model.SettlementRun;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementRunResponse {
+    private Long id;
+
+    private String month;
+
+    private String throughMonth;
+
+    private SettlementRun.Status status;
+
+    private LocalDateTime requestedAt;
+
+    private LocalDateTime finishedAt;
+
+    private Long installations;
+
+    private Long settled;
+
+    private Long intervals;
+
+    private Double totalAmountDue;
+
+    private Long elapsedMs;
+
+    private String error;
+
+    public static SettlementRunResponse from(SettlementRun run) {
+        return new SettlementRunResponse(run.getId(), YearMonth.from(run.getBillingMonth()).toString(),
+                run.getThroughMonth() != null ? YearMonth.from(run.getThroughMonth()).toString() : null,
+                run.getStatus(), run.getRequestedAt(), run.getFinishedAt(), run.getInstallations(), run.getSettled(),
+                run.getIntervals(), run.getTotalAmountDue(), run.getElapsedMs(), run.getError());
+    }
+}
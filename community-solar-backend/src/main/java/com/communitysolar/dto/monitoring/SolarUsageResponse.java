@@ -0,0 +1,33 @@
+package com.communitysolar.dto.monitoring;
+
+import java.time.LocalDateTime;
+
+import com.communitysolar.model.SolarUsage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolarUsageResponse {
+    private Long id;
+
+    private Long installationId;
+
+    private Double solarEnergyUsed;
+
+    private Double gridEnergyUsed;
+
+    private LocalDateTime readingTimestamp;
+
+    private Double billAmount;
+
+    public static SolarUsageResponse from(SolarUsage usage) {
+        return new SolarUsageResponse(usage.getId(),
+                usage.getInstallation() != null ? usage.getInstallation().getId() : null,
+                usage.getSolarEnergyUsed(), usage.getGridEnergyUsed(), usage.getReadingTimestamp(),
+                usage.getBillAmount());
+    }
+}
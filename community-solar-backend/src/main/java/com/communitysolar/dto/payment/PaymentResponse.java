@@ -0,0 +1,46 @@
+package com.communitysolar.dto.payment;
+
+import java.time.LocalDateTime;
+
+import com.communitysolar.model.Payment;
+import com.communitysolar.model.Payment.PaymentStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentResponse {
+    private Long id;
+
+    private Long userId;
+
+    private Long communityId;
+
+    private Double amount;
+
+    private PaymentStatus status;
+
+    private LocalDateTime paymentDate;
+
+    private String paymentMethod;
+
+    private String transactionId;
+
+    private Integer installmentNumber;
+
+    private Integer totalInstallments;
+
+    private Double originalAmount;
+
+    public static PaymentResponse from(Payment payment) {
+        return new PaymentResponse(payment.getId(),
+                payment.getUser() != null ? payment.getUser().getId() : null,
+                payment.getCommunity() != null ? payment.getCommunity().getId() : null,
+                payment.getAmount(), payment.getStatus(), payment.getPaymentDate(), payment.getPaymentMethod(),
+                payment.getTransactionId(), payment.getInstallmentNumber(), payment.getTotalInstallments(),
+                payment.getOriginalAmount());
+    }
+}
@@ -0,0 +1,40 @@
+package com.communitysolar.dto.provider;
+
+import java.time.LocalDateTime;
+
+import com.communitysolar.model.Installation.InstallationStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProviderProjectResponse {
+    private Long projectId;
+
+    private InstallationStatus status;
+
+    private Integer progress;
+
+    private boolean generating;
+
+    private Double systemSizeKw;
+
+    private LocalDateTime startDate;
+
+    private Long customerId;
+
+    private String customerName;
+
+    private Long communityId;
+
+    private String communityName;
+
+    private String location;
+
+    private LocalDateTime latestUpdateTime;
+
+    private String latestUpdateNotes;
+}
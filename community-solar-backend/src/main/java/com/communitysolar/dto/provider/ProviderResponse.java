@@ -0,0 +1,34 @@
+package com.communitysolar.dto.provider;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProviderResponse {
+    private Long id;
+
+    private String name;
+
+    private String description;
+
+    private String address;
+
+    private String website;
+
+    private String phone;
+
+    private String email;
+
+    private boolean certified;
+
+    private Integer yearsExperience;
+
+    private Double averageRating;
+
+    private long reviewCount;
+
+    private Long userId;
+}
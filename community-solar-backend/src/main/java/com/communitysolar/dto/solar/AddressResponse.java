@@ -0,0 +1,41 @@
+package com.communitysolar.dto.solar;
+
+import com.communitysolar.model.Address;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddressResponse {
+    private Long id;
+
+    private Long userId;
+
+    private String street;
+
+    private String city;
+
+    private String state;
+
+    private String zipCode;
+
+    private Double monthlyUsage;
+
+    private Double monthlyBill;
+
+    private Integer homeSize;
+
+    private String roofType;
+
+    private Double solarPotential;
+
+    public static AddressResponse from(Address address) {
+        return new AddressResponse(address.getId(), address.getUser() != null ? address.getUser().getId() : null,
+                address.getStreet(), address.getCity(), address.getState(), address.getZipCode(),
+                address.getMonthlyUsage(), address.getMonthlyBill(), address.getHomeSize(), address.getRoofType(),
+                address.getSolarPotential());
+    }
+}
@@ -0,0 +1,29 @@
+package com.communitysolar.dto.solar;
+
+import java.time.LocalDateTime;
+
+import com.communitysolar.model.ElectricityUsage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ElectricityUsageResponse {
+    private Long id;
+
+    private String period;
+
+    private Double units;
+
+    private Double amount;
+
+    private LocalDateTime createdAt;
+
+    public static ElectricityUsageResponse from(ElectricityUsage usage) {
+        return new ElectricityUsageResponse(usage.getId(), usage.getPeriod(), usage.getUnits(), usage.getAmount(),
+                usage.getCreatedAt());
+    }
+}
@@ -0,0 +1,13 @@
+package com.communitysolar.dto.solar;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class SolarPlanBatchRequest {
+    // Either an explicit list of addresses or every member address of a community
+    private List<Long> addressIds;
+
+    private Long communityId;
+}
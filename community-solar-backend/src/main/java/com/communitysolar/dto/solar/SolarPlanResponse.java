@@ -0,0 +1,39 @@
+package com.communitysolar.dto.solar;
+
+import java.time.LocalDateTime;
+
+import com.communitysolar.model.SolarPlan;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolarPlanResponse {
+    private Long id;
+
+    private Long addressId;
+
+    private Long communityId;
+
+    private Double systemSizeKw;
+
+    private Double estimatedProductionKwh;
+
+    private Integer panelCount;
+
+    private Double estimatedCost;
+
+    private Double roiYears;
+
+    private LocalDateTime createdAt;
+
+    public static SolarPlanResponse from(SolarPlan plan) {
+        return new SolarPlanResponse(plan.getId(), plan.getAddress() != null ? plan.getAddress().getId() : null,
+                plan.getCommunity() != null ? plan.getCommunity().getId() : null, plan.getSystemSizeKw(),
+                plan.getEstimatedProductionKwh(), plan.getPanelCount(), plan.getEstimatedCost(), plan.getRoiYears(),
+                plan.getCreatedAt());
+    }
+}
@@ -6,18 +6,24 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "communities")
 @Table(name = "communities")
 @Data
 @NoArgsConstructor
 public class Community {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "communities_seq")
+    @SequenceGenerator(name = "communities_seq", sequenceName = "communities_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -35,6 +41,12 @@ public class Community {
     @Column(name = "member_count")
     private Integer memberCount = 0;
 
+    @Column(name = "total_allocation_weight")
+    private Double totalAllocationWeight = 0.0;
+
+    @Column(name = "total_cost_weight")
+    private Double totalCostWeight = 0.0;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
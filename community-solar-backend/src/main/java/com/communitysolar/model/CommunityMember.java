@@ -8,12 +8,16 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "community_members")
+@Table(name = "community_members",
+       uniqueConstraints = @UniqueConstraint(columnNames = { "community_id", "user_id" }))
 @Data
 @NoArgsConstructor
 public class CommunityMember {
+    public static final double DEFAULT_WEIGHT = 1.0;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "community_members_seq")
+    @SequenceGenerator(name = "community_members_seq", sequenceName = "community_members_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -27,14 +31,31 @@ public class CommunityMember {
     @Column(name = "join_date")
     private LocalDateTime joinDate;
 
-    @Column(name = "energy_allocation")
-    private Double energyAllocation;
+    // Shares are stored as weights; the percentage a member holds is its weight
+    // over the community total, so a join or leave never rewrites other members.
+    @Column(name = "allocation_weight")
+    private Double allocationWeight = DEFAULT_WEIGHT;
 
-    @Column(name = "cost_share")
-    private Double costShare;
+    @Column(name = "cost_weight")
+    private Double costWeight = DEFAULT_WEIGHT;
 
     @PrePersist
     protected void onCreate() {
         joinDate = LocalDateTime.now();
     }
+
+    public double getEnergyAllocation() {
+        return community == null ? 0.0 : percentOf(allocationWeight, community.getTotalAllocationWeight());
+    }
+
+    public double getCostShare() {
+        return community == null ? 0.0 : percentOf(costWeight, community.getTotalCostWeight());
+    }
+
+    public static double percentOf(Double weight, Double total) {
+        if (weight == null || total == null || total <= 0) {
+            return 0.0;
+        }
+        return weight * 100.0 / total;
+    }
 }
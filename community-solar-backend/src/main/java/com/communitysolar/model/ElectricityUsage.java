@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class ElectricityUsage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "electricity_usage_seq")
+    @SequenceGenerator(name = "electricity_usage_seq", sequenceName = "electricity_usage_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -2,25 +2,29 @@
 package com.communitysolar.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.PartitionKey;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "energy_data")
+@Table(name = "energy_data",
+       indexes = @Index(name = "idx_energy_data_installation_time", columnList = "installation_id, timestamp"))
 @Data
 @NoArgsConstructor
 public class EnergyData {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "energy_data_seq")
+    @SequenceGenerator(name = "energy_data_seq", sequenceName = "energy_data_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
     @JoinColumn(name = "installation_id")
     private Installation installation;
 
-    @Column(name = "timestamp")
+    @PartitionKey
+    @Column(name = "timestamp", nullable = false)
     private LocalDateTime timestamp;
 
     @Column(name = "energy_produced")
@@ -9,12 +9,14 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "installations")
+@Table(name = "installations",
+       indexes = @Index(name = "idx_installations_provider", columnList = "provider_id, id"))
 @Data
 @NoArgsConstructor
 public class Installation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "installations_seq")
+    @SequenceGenerator(name = "installations_seq", sequenceName = "installations_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -29,6 +31,10 @@ public class Installation {
     @JoinColumn(name = "user_id")
     private User user;
 
+    @ManyToOne
+    @JoinColumn(name = "community_id")
+    private Community community;
+
     @Enumerated(EnumType.STRING)
     private InstallationStatus status;
 
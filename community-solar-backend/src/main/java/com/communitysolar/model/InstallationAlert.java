@@ -0,0 +1,52 @@
+package com.communitysolar.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An installation found producing well below both its own baseline for the
+ * hour and its neighbours' output in the same hour. Stays open until the
+ * installation is back to normal output.
+ */
+@Entity
+@Table(name = "installation_alerts",
+       indexes = @Index(name = "idx_installation_alerts_installation", columnList = "installation_id, id"))
+@Data
+@NoArgsConstructor
+public class InstallationAlert {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "installation_alerts_seq")
+    @SequenceGenerator(name = "installation_alerts_seq", sequenceName = "installation_alerts_seq", allocationSize = 50)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "installation_id", nullable = false)
+    private Installation installation;
+
+    // Start of the hour that completed the run of low readings
+    @Column(name = "interval_start")
+    private LocalDateTime intervalStart;
+
+    // Output in that hour and what was expected, in kWh per kW installed
+    @Column(name = "actual_kwh_per_kw")
+    private Double actualKwhPerKw;
+
+    @Column(name = "baseline_kwh_per_kw")
+    private Double baselineKwhPerKw;
+
+    // Null when the installation had too few reporting neighbours
+    @Column(name = "neighbour_kwh_per_kw")
+    private Double neighbourKwhPerKw;
+
+    @Column(name = "detected_at")
+    private LocalDateTime detectedAt;
+
+    @Column(name = "resolved_at")
+    private LocalDateTime resolvedAt;
+}
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class InstallationMilestone {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "installation_milestones_seq")
+    @SequenceGenerator(name = "installation_milestones_seq", sequenceName = "installation_milestones_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
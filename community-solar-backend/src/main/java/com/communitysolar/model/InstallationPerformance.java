@@ -0,0 +1,74 @@
+package com.communitysolar.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running generation totals for one installation, kept up to date as readings
+ * are ingested so KPIs never have to scan {@link EnergyData}. Year and month
+ * totals belong to {@code ytdYear} and {@code mtdMonth} (yyyymm) and start
+ * again when a reading for a later period arrives.
+ *
+ * Operating hours count clock hours with any output. The hour being filled is
+ * held in {@code currentHour} (hours since the epoch, local time) so readings
+ * split across batches count once; readings older than it still add energy but
+ * not hours or peaks.
+ */
+@Entity
+@Table(name = "installation_performance")
+@Data
+@NoArgsConstructor
+public class InstallationPerformance {
+    @Id
+    @Column(name = "installation_id")
+    private Long installationId;
+
+    @Column(name = "lifetime_kwh")
+    private double lifetimeKwh;
+
+    @Column(name = "lifetime_operating_hours")
+    private long lifetimeOperatingHours;
+
+    @Column(name = "ytd_year")
+    private int ytdYear;
+
+    @Column(name = "ytd_kwh")
+    private double ytdKwh;
+
+    @Column(name = "ytd_operating_hours")
+    private long ytdOperatingHours;
+
+    @Column(name = "mtd_month")
+    private int mtdMonth;
+
+    @Column(name = "mtd_kwh")
+    private double mtdKwh;
+
+    @Column(name = "mtd_operating_hours")
+    private long mtdOperatingHours;
+
+    @Column(name = "current_hour")
+    private long currentHour = Long.MIN_VALUE;
+
+    @Column(name = "current_hour_kwh")
+    private double currentHourKwh;
+
+    // Highest output in a single clock hour, i.e. peak hourly average kW
+    @Column(name = "peak_kwh")
+    private double peakKwh;
+
+    @Column(name = "peak_hour_start")
+    private LocalDateTime peakHourStart;
+
+    @Column(name = "first_reading_at")
+    private LocalDateTime firstReadingAt;
+
+    @Column(name = "last_reading_at")
+    private LocalDateTime lastReadingAt;
+
+    @Column(name = "rebuilt_at")
+    private LocalDateTime rebuiltAt;
+}
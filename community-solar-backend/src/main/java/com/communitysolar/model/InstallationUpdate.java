@@ -8,12 +8,14 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "installation_updates")
+@Table(name = "installation_updates",
+       indexes = @Index(name = "idx_installation_updates_timeline", columnList = "installation_id, update_time, id"))
 @Data
 @NoArgsConstructor
 public class InstallationUpdate {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "installation_updates_seq")
+    @SequenceGenerator(name = "installation_updates_seq", sequenceName = "installation_updates_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
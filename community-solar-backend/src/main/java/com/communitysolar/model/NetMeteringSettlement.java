@@ -0,0 +1,75 @@
+package com.communitysolar.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One installation's net-metering settlement for a billing month. Exports
+ * offset imports unit for unit; a surplus is banked into the next month and
+ * only paid out at the export rate when the banking year ends.
+ */
+@Entity
+@Table(name = "net_metering_settlements",
+       uniqueConstraints = @UniqueConstraint(name = "uk_settlements_installation_month",
+                                             columnNames = { "installation_id", "billing_month" }))
+@Data
+@NoArgsConstructor
+public class NetMeteringSettlement {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "net_metering_settlements_seq")
+    @SequenceGenerator(name = "net_metering_settlements_seq", sequenceName = "net_metering_settlements_seq", allocationSize = 50)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "installation_id", nullable = false)
+    private Installation installation;
+
+    // First day of the month settled
+    @Column(name = "billing_month", nullable = false)
+    private LocalDate billingMonth;
+
+    @Column(name = "intervals")
+    private long intervals;
+
+    @Column(name = "imported_kwh")
+    private double importedKwh;
+
+    @Column(name = "exported_kwh")
+    private double exportedKwh;
+
+    // Surplus carried in from the previous month
+    @Column(name = "banked_in_kwh")
+    private double bankedInKwh;
+
+    // Net units charged through the import tariff
+    @Column(name = "billed_kwh")
+    private double billedKwh;
+
+    // Surplus carried to the next month
+    @Column(name = "banked_out_kwh")
+    private double bankedOutKwh;
+
+    // Surplus paid out at the export rate at the end of the banking year
+    @Column(name = "credited_kwh")
+    private double creditedKwh;
+
+    @Column(name = "import_charge")
+    private double importCharge;
+
+    @Column(name = "export_credit")
+    private double exportCredit;
+
+    // Charge less credit; negative when the member is owed money
+    @Column(name = "amount_due")
+    private double amountDue;
+
+    @Column(name = "settled_at")
+    private LocalDateTime settledAt;
+}
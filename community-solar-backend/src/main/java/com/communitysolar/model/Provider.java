@@ -6,16 +6,22 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "providers")
 @Table(name = "providers")
 @Data
 @NoArgsConstructor
 public class Provider {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "providers_seq")
+    @SequenceGenerator(name = "providers_seq", sequenceName = "providers_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class ProviderReview {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "provider_reviews_seq")
+    @SequenceGenerator(name = "provider_reviews_seq", sequenceName = "provider_reviews_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
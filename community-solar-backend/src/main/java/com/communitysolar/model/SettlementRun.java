@@ -0,0 +1,69 @@
+package com.communitysolar.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A net-metering settlement run and its outcome. Settling a month also
+ * resettles every later month that was already settled, since each one's
+ * banked-in surplus comes from the month before; {@code throughMonth} is the
+ * last month the run rewrote and the totals cover all of them.
+ */
+@Entity
+@Table(name = "settlement_runs")
+@Data
+@NoArgsConstructor
+public class SettlementRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "settlement_runs_seq")
+    @SequenceGenerator(name = "settlement_runs_seq", sequenceName = "settlement_runs_seq", allocationSize = 50)
+    private Long id;
+
+    // First day of the month asked for
+    @Column(name = "billing_month", nullable = false)
+    private LocalDate billingMonth;
+
+    @Column(name = "through_month")
+    private LocalDate throughMonth;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private Status status;
+
+    // True while running, null afterwards; unique, so at most one run is in progress
+    @Column(unique = true)
+    private Boolean active;
+
+    @Column(name = "requested_at")
+    private LocalDateTime requestedAt;
+
+    // Advanced on every committed batch; a running row that stops beating was abandoned
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    private Long installations;
+
+    private Long settled;
+
+    private Long intervals;
+
+    @Column(name = "total_amount_due")
+    private Double totalAmountDue;
+
+    @Column(name = "elapsed_ms")
+    private Long elapsedMs;
+
+    @Column(length = 1000)
+    private String error;
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED
+    }
+}
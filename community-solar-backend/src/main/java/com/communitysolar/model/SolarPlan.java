@@ -5,21 +5,33 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "solar_plans")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "solarPlans")
+@Table(name = "solar_plans",
+       uniqueConstraints = @UniqueConstraint(name = "uk_solar_plans_input_hash", columnNames = "input_hash"))
 @Data
 @NoArgsConstructor
 public class SolarPlan {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "solar_plans_seq")
+    @SequenceGenerator(name = "solar_plans_seq", sequenceName = "solar_plans_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
     @JoinColumn(name = "address_id")
     private Address address;
 
+    // Set instead of address for a shared system designed for a whole community
+    @ManyToOne
+    @JoinColumn(name = "community_id")
+    private Community community;
+
     @Column(name = "system_size_kw")
     private Double systemSizeKw;
 
@@ -35,6 +47,14 @@ public class SolarPlan {
     @Column(name = "roi_years")
     private Double roiYears;
 
+    // Usage the plan was sized for, which may differ from the address's current figure
+    @Column(name = "monthly_usage_kwh")
+    private Double monthlyUsageKwh;
+
+    // SHA-256 of the inputs the plan was sized from, see SolarPlanCalculator.inputHash
+    @Column(name = "input_hash", length = 64)
+    private String inputHash;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,45 @@
+package com.communitysolar.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One member address's part in a shared community system: the panels placed
+ * on its roof (possibly none) and the share of total output credited to it.
+ */
+@Entity
+@Table(name = "solar_plan_allocations")
+@Data
+@NoArgsConstructor
+public class SolarPlanAllocation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "solar_plan_allocations_seq")
+    @SequenceGenerator(name = "solar_plan_allocations_seq", sequenceName = "solar_plan_allocations_seq", allocationSize = 50)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "solar_plan_id", nullable = false)
+    private SolarPlan solarPlan;
+
+    @ManyToOne
+    @JoinColumn(name = "address_id", nullable = false)
+    private Address address;
+
+    @Column(name = "panel_count")
+    private Integer panelCount;
+
+    @Column(name = "system_size_kw")
+    private Double systemSizeKw;
+
+    // Output of the panels on this roof
+    @Column(name = "estimated_production_kwh")
+    private Double estimatedProductionKwh;
+
+    // Output credited to this address, in proportion to its usage
+    @Column(name = "allocated_production_kwh")
+    private Double allocatedProductionKwh;
+}
@@ -2,6 +2,7 @@
 package com.communitysolar.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.PartitionKey;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -13,7 +14,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class SolarUsage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "solar_usage_seq")
+    @SequenceGenerator(name = "solar_usage_seq", sequenceName = "solar_usage_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -30,7 +32,8 @@ public class SolarUsage {
     @Column(name = "grid_energy_used")
     private Double gridEnergyUsed; // in kWh
 
-    @Column(name = "reading_timestamp")
+    @PartitionKey
+    @Column(name = "reading_timestamp", nullable = false)
     private LocalDateTime readingTimestamp;
 
     @Column(name = "bill_amount")
@@ -1,9 +1,12 @@
 
 package com.communitysolar.model;
 
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -21,7 +24,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -52,6 +56,13 @@ public class User {
                inverseJoinColumns = @JoinColumn(name = "role_id"))
     private Set<Role> roles = new HashSet<>();
 
+    // Last change to the roles or profile carried in tokens; tokens issued
+    // before it are resolved from the database. Written only through
+    // UserRepository.markClaimsChanged, so saving a stale entity can't roll it back.
+    @JsonIgnore
+    @Column(name = "claims_changed_at", insertable = false, updatable = false)
+    private LocalDateTime claimsChangedAt;
+
     public User(String username, String email, String password) {
         this.username = username;
         this.email = email;
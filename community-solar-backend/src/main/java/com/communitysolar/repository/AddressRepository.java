@@ -2,6 +2,8 @@
 package com.communitysolar.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.communitysolar.model.Address;
@@ -12,4 +14,8 @@ import java.util.List;
 @Repository
 public interface AddressRepository extends JpaRepository<Address, Long> {
     List<Address> findByUser(User user);
+    
+    @Query("select a from Address a where a.user.id in "
+            + "(select m.user.id from CommunityMember m where m.community.id = :communityId)")
+    List<Address> findByCommunityId(@Param("communityId") Long communityId);
 }
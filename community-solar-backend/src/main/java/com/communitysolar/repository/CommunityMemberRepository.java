@@ -1,15 +1,21 @@
-
 package com.communitysolar.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.communitysolar.dto.community.MemberAllocationResponse;
 import com.communitysolar.model.Community;
 import com.communitysolar.model.CommunityMember;
 import com.communitysolar.model.User;
 
+import jakarta.persistence.LockModeType;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface CommunityMemberRepository extends JpaRepository<CommunityMember, Long> {
@@ -20,4 +26,16 @@ public interface CommunityMemberRepository extends JpaRepository<CommunityMember
     Optional<CommunityMember> findByCommunityAndUser(Community community, User user);
     
     boolean existsByCommunityAndUser(Community community, User user);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m from CommunityMember m where m.community = :community and m.user.id = :userId")
+    Optional<CommunityMember> findForUpdate(@Param("community") Community community, @Param("userId") Long userId);
+    
+    @Query("select m.user.id from CommunityMember m where m.community = :community")
+    Set<Long> findUserIdsByCommunity(@Param("community") Community community);
+    
+    @Query("select new com.communitysolar.dto.community.MemberAllocationResponse(u.id, u.username, "
+            + "m.allocationWeight, c.totalAllocationWeight, m.costWeight, c.totalCostWeight) "
+            + "from CommunityMember m join m.user u join m.community c where c.id = :communityId order by m.id")
+    List<MemberAllocationResponse> findAllocationsByCommunityId(@Param("communityId") Long communityId);
 }
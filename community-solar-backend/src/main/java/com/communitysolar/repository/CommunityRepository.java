@@ -1,20 +1,49 @@
-
 package com.communitysolar.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.communitysolar.dto.community.CommunityResponse;
 import com.communitysolar.model.Community;
 import com.communitysolar.model.User;
 
+import jakarta.persistence.LockModeType;
+
 import java.util.List;
 import java.util.Optional;
 
+// No query caching: joins update the community totals, which invalidates every cached query over the table
 @Repository
 public interface CommunityRepository extends JpaRepository<Community, Long> {
+    String RESPONSE_COLUMNS = "c.id, c.name, c.description, c.location, c.zipCode, c.inviteCode, c.memberCount, "
+            + "c.totalAllocationWeight, c.totalCostWeight, c.createdAt, c.updatedAt, c.creator.id";
+    
     List<Community> findByCreator(User creator);
     
     List<Community> findByZipCode(String zipCode);
     
     Optional<Community> findByInviteCode(String inviteCode);
+    
+    @Query("select new com.communitysolar.dto.community.CommunityResponse(" + RESPONSE_COLUMNS + ") "
+            + "from Community c order by c.id")
+    List<CommunityResponse> findAllResponses();
+    
+    @Query("select new com.communitysolar.dto.community.CommunityResponse(" + RESPONSE_COLUMNS + ") "
+            + "from Community c where c.zipCode = :zipCode order by c.id")
+    List<CommunityResponse> findResponsesByZipCode(@Param("zipCode") String zipCode);
+    
+    @Query("select new com.communitysolar.dto.community.CommunityResponse(" + RESPONSE_COLUMNS + ") "
+            + "from Community c where c.id = :id")
+    Optional<CommunityResponse> findResponseById(@Param("id") Long id);
+    
+    @Query("select new com.communitysolar.dto.community.CommunityResponse(" + RESPONSE_COLUMNS + ") "
+            + "from CommunityMember m join m.community c where m.user.id = :userId order by c.id")
+    List<CommunityResponse> findResponsesByMemberId(@Param("userId") Long userId);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Community c where c.id = :id")
+    Optional<Community> findForUpdate(@Param("id") Long id);
 }
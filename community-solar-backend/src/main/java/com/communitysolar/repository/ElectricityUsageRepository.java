@@ -2,8 +2,11 @@
 package com.communitysolar.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.communitysolar.dto.solar.ElectricityUsageResponse;
 import com.communitysolar.model.ElectricityUsage;
 import com.communitysolar.model.User;
 
@@ -14,4 +17,8 @@ public interface ElectricityUsageRepository extends JpaRepository<ElectricityUsa
     List<ElectricityUsage> findByUser(User user);
     
     List<ElectricityUsage> findByUserAndPeriod(User user, String period);
+    
+    @Query("select new com.communitysolar.dto.solar.ElectricityUsageResponse(e.id, e.period, e.units, e.amount, e.createdAt) "
+            + "from ElectricityUsage e where e.user.id = :userId order by e.period, e.id")
+    List<ElectricityUsageResponse> findResponsesByUserId(@Param("userId") Long userId);
 }
@@ -2,17 +2,24 @@
 package com.communitysolar.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.communitysolar.model.EnergyData;
 import com.communitysolar.model.Installation;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface EnergyDataRepository extends JpaRepository<EnergyData, Long> {
+public interface EnergyDataRepository extends JpaRepository<EnergyData, Long>, EnergyDataRepositoryCustom {
     List<EnergyData> findByInstallation(Installation installation);
     
-    List<EnergyData> findByInstallationAndTimestampBetween(Installation installation, LocalDateTime start, LocalDateTime end);
+    // Output per clock hour, oldest first: year, month, day, hour, kWh, first and last reading in the hour
+    @Query("select year(e.timestamp), month(e.timestamp), day(e.timestamp), hour(e.timestamp), "
+            + "sum(e.energyProduced), min(e.timestamp), max(e.timestamp) "
+            + "from EnergyData e where e.installation.id = :installationId and e.energyProduced is not null "
+            + "group by year(e.timestamp), month(e.timestamp), day(e.timestamp), hour(e.timestamp) "
+            + "order by 1, 2, 3, 4")
+    List<Object[]> sumHourlyProduction(@Param("installationId") Long installationId);
 }
@@ -0,0 +1,14 @@
+package com.communitysolar.repository;
+
+import com.communitysolar.model.EnergyData;
+import com.communitysolar.model.Installation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Time-range reads that only touch the monthly partitions overlapping the range.
+ */
+public interface EnergyDataRepositoryCustom {
+    List<EnergyData> findByInstallationAndTimestampBetween(Installation installation, LocalDateTime start, LocalDateTime end);
+}
@@ -0,0 +1,23 @@
+package com.communitysolar.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.communitysolar.model.EnergyData;
+import com.communitysolar.model.Installation;
+import com.communitysolar.service.ReadingPartitions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class EnergyDataRepositoryImpl implements EnergyDataRepositoryCustom {
+
+    @Autowired
+    private ReadingPartitions partitions;
+
+    @Override
+    public List<EnergyData> findByInstallationAndTimestampBetween(Installation installation, LocalDateTime start,
+            LocalDateTime end) {
+        return partitions.findBetween(EnergyData.class, ReadingPartitions.Table.ENERGY_DATA, "installation_id",
+                installation.getId(), start, end);
+    }
+}
@@ -0,0 +1,25 @@
+package com.communitysolar.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.communitysolar.model.InstallationAlert;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InstallationAlertRepository extends JpaRepository<InstallationAlert, Long> {
+    // Written out so the filter is on installation_id, not on a joined installations row
+    @Query("select a from InstallationAlert a where a.installation.id = :installationId order by a.id desc")
+    List<InstallationAlert> findByInstallationIdOrderByIdDesc(@Param("installationId") Long installationId,
+            Pageable page);
+
+    @Query("select a from InstallationAlert a where a.installation.id = :installationId and a.resolvedAt is null "
+            + "order by a.id desc limit 1")
+    Optional<InstallationAlert> findFirstByInstallationIdAndResolvedAtIsNullOrderByIdDesc(
+            @Param("installationId") Long installationId);
+}
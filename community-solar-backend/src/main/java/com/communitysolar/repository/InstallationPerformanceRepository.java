@@ -0,0 +1,19 @@
+package com.communitysolar.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import com.communitysolar.model.InstallationPerformance;
+
+import jakarta.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface InstallationPerformanceRepository extends JpaRepository<InstallationPerformance, Long> {
+    // Locked in id order so concurrent batches can't deadlock on each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<InstallationPerformance> findByInstallationIdInOrderByInstallationId(Collection<Long> installationIds);
+}
@@ -1,21 +1,54 @@
 package com.communitysolar.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.communitysolar.dto.provider.ProviderProjectResponse;
 import com.communitysolar.model.Installation;
 import com.communitysolar.model.Provider;
 import com.communitysolar.model.User;
 import com.communitysolar.model.Community;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface InstallationRepository extends JpaRepository<Installation, Long> {
+    String CANCELLED_STATUS = "com.communitysolar.model.Installation$InstallationStatus.CANCELLED";
+    
     List<Installation> findByUser(User user);
     
     List<Installation> findByProvider(Provider provider);
     
+    // Dashboard rows for a provider in one statement. The page of installation ids
+    // is cut first so the latest update is only looked up (through the
+    // (installation_id, update_time, id) index) for the rows being returned.
+    @Query("select new com.communitysolar.dto.provider.ProviderProjectResponse("
+            + "i.id, i.status, i.currentProgress, i.isGenerating, coalesce(i.totalCapacityKw, p.systemSizeKw), "
+            + "i.startDate, u.id, trim(concat(coalesce(u.firstName, ''), ' ', coalesce(u.lastName, ''))), "
+            + "c.id, c.name, c.location, lu.updateTime, lu.updateNotes) "
+            + "from (select i2.id as id from Installation i2 where i2.provider.id = :providerId "
+            + "and (i2.status is null or i2.status <> " + CANCELLED_STATUS + ") "
+            + "order by i2.id desc limit :limit offset :offset) page "
+            + "join Installation i on i.id = page.id "
+            + "left join i.user u left join i.community c left join i.solarPlan p "
+            + "left join InstallationUpdate lu on lu.id = ("
+            + "select u2.id from InstallationUpdate u2 where u2.installation = i "
+            + "order by u2.updateTime desc, u2.id desc limit 1) "
+            + "order by i.id desc")
+    List<ProviderProjectResponse> findProjectsByProvider(@Param("providerId") Long providerId,
+                                                         @Param("offset") int offset,
+                                                         @Param("limit") int limit);
+    
+    @Query("select count(i) from Installation i where i.provider.id = :providerId "
+            + "and (i.status is null or i.status <> " + CANCELLED_STATUS + ")")
+    long countProjectsByProvider(@Param("providerId") Long providerId);
+    
+    @Query("select i.id from Installation i where i.id in :ids and i.provider.user.id = :userId")
+    List<Long> findIdsByIdInAndProviderUserId(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+    
     List<Installation> findByCommunity(Community community);
     List<Installation> findByCommunityAndIsGenerating(Community community, boolean isGenerating);
     List<Installation> findByUserAndIsGenerating(User user, boolean isGenerating);
@@ -1,16 +1,37 @@
-
 package com.communitysolar.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.communitysolar.dto.monitoring.InstallationUpdateResponse;
 import com.communitysolar.model.InstallationUpdate;
 import com.communitysolar.model.Installation;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface InstallationUpdateRepository extends JpaRepository<InstallationUpdate, Long> {
     List<InstallationUpdate> findByInstallationOrderByUpdateTimeDesc(Installation installation);
     InstallationUpdate findTopByInstallationOrderByUpdateTimeDesc(Installation installation);
+    
+    @Query("select new com.communitysolar.dto.monitoring.InstallationUpdateResponse("
+            + "u.id, u.progressPercentage, u.updateNotes, u.updateTime, u.isCompleted) "
+            + "from InstallationUpdate u where u.installation.id = :installationId "
+            + "order by u.updateTime desc, u.id desc")
+    List<InstallationUpdateResponse> findTimeline(@Param("installationId") Long installationId, Pageable page);
+    
+    // Keyset page: everything strictly older than the (updateTime, id) cursor
+    @Query("select new com.communitysolar.dto.monitoring.InstallationUpdateResponse("
+            + "u.id, u.progressPercentage, u.updateNotes, u.updateTime, u.isCompleted) "
+            + "from InstallationUpdate u where u.installation.id = :installationId "
+            + "and (u.updateTime < :updateTime or (u.updateTime = :updateTime and u.id < :id)) "
+            + "order by u.updateTime desc, u.id desc")
+    List<InstallationUpdateResponse> findTimelineBefore(@Param("installationId") Long installationId,
+                                                        @Param("updateTime") LocalDateTime updateTime,
+                                                        @Param("id") Long id,
+                                                        Pageable page);
 }
@@ -0,0 +1,23 @@
+package com.communitysolar.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.communitysolar.model.NetMeteringSettlement;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface NetMeteringSettlementRepository extends JpaRepository<NetMeteringSettlement, Long> {
+    // Written out so the filter is on installation_id, not on a joined installations row
+    @Query("select s from NetMeteringSettlement s where s.installation.id = :installationId "
+            + "order by s.billingMonth desc")
+    List<NetMeteringSettlement> findByInstallationIdOrderByBillingMonthDesc(
+            @Param("installationId") Long installationId, Pageable page);
+
+    boolean existsByBillingMonth(LocalDate billingMonth);
+}
@@ -0,0 +1,30 @@
+package com.communitysolar.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.communitysolar.model.PasswordResetToken;
+
+import jakarta.persistence.LockModeType;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<PasswordResetToken> findByTokenHash(String tokenHash);
+    
+    // A new request or a completed reset retires every outstanding token of the user
+    @Modifying
+    @Query("update PasswordResetToken t set t.used = true where t.user.id = :userId and t.used = false")
+    int retireAllForUser(@Param("userId") Long userId);
+    
+    @Modifying
+    @Query("delete from PasswordResetToken t where t.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -2,8 +2,11 @@
 package com.communitysolar.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.communitysolar.dto.payment.PaymentResponse;
 import com.communitysolar.model.Community;
 import com.communitysolar.model.Payment;
 import com.communitysolar.model.User;
@@ -12,6 +15,9 @@ import java.util.List;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
+    String RESPONSE_COLUMNS = "p.id, p.user.id, p.community.id, p.amount, p.status, p.paymentDate, "
+            + "p.paymentMethod, p.transactionId, p.installmentNumber, p.totalInstallments, p.originalAmount";
+    
     List<Payment> findByUser(User user);
     
     List<Payment> findByCommunity(Community community);
@@ -19,4 +25,12 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Payment> findByCommunityAndStatus(Community community, Payment.PaymentStatus status);
     
     List<Payment> findByUserAndCommunityAndStatus(User user, Community community, Payment.PaymentStatus status);
+    
+    @Query("select new com.communitysolar.dto.payment.PaymentResponse(" + RESPONSE_COLUMNS + ") "
+            + "from Payment p where p.user.id = :userId order by p.id")
+    List<PaymentResponse> findResponsesByUserId(@Param("userId") Long userId);
+    
+    @Query("select new com.communitysolar.dto.payment.PaymentResponse(" + RESPONSE_COLUMNS + ") "
+            + "from Payment p where p.community.id = :communityId order by p.id")
+    List<PaymentResponse> findResponsesByCommunityId(@Param("communityId") Long communityId);
 }
@@ -1,18 +1,46 @@
 
 package com.communitysolar.repository;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.communitysolar.dto.provider.ProviderResponse;
 import com.communitysolar.model.Provider;
 import com.communitysolar.model.User;
 
+import jakarta.persistence.QueryHint;
+
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProviderRepository extends JpaRepository<Provider, Long> {
+    // Reviews are counted in the same statement rather than loaded
+    String RESPONSE_COLUMNS = "p.id, p.name, p.description, p.address, p.website, p.phone, p.email, p.isCertified, "
+            + "p.yearsExperience, p.averageRating, "
+            + "(select count(r) from ProviderReview r where r.provider = p), p.user.id";
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.providers")
+    })
     Optional<Provider> findByUser(User user);
     
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.providers")
+    })
     List<Provider> findByIsCertified(boolean isCertified);
+    
+    @Query("select new com.communitysolar.dto.provider.ProviderResponse(" + RESPONSE_COLUMNS + ") "
+            + "from Provider p order by p.id")
+    List<ProviderResponse> findAllResponses();
+    
+    @Query("select new com.communitysolar.dto.provider.ProviderResponse(" + RESPONSE_COLUMNS + ") "
+            + "from Provider p where p.id = :id")
+    Optional<ProviderResponse> findResponseById(@Param("id") Long id);
 }
@@ -0,0 +1,26 @@
+package com.communitysolar.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.communitysolar.model.SettlementRun;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface SettlementRunRepository extends JpaRepository<SettlementRun, Long> {
+    Optional<SettlementRun> findByActiveTrue();
+
+    // Releases a run whose instance stopped updating it, e.g. because it was killed mid-run
+    @Modifying
+    @Query("update SettlementRun r set r.status = :failed, "
+            + "r.active = null, r.finishedAt = :now, "
+            + "r.error = 'Abandoned: the run stopped reporting progress' "
+            + "where r.active = true and r.heartbeatAt < :cutoff")
+    int releaseStale(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now,
+            @Param("failed") SettlementRun.Status failed);
+}
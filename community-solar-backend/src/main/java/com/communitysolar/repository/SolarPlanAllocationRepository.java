@@ -0,0 +1,14 @@
+package com.communitysolar.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.communitysolar.model.SolarPlan;
+import com.communitysolar.model.SolarPlanAllocation;
+
+import java.util.List;
+
+@Repository
+public interface SolarPlanAllocationRepository extends JpaRepository<SolarPlanAllocation, Long> {
+    List<SolarPlanAllocation> findBySolarPlan(SolarPlan solarPlan);
+}
@@ -1,12 +1,17 @@
 
 package com.communitysolar.repository;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.communitysolar.model.Address;
 import com.communitysolar.model.SolarPlan;
 
+import jakarta.persistence.QueryHint;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +20,12 @@ public interface SolarPlanRepository extends JpaRepository<SolarPlan, Long> {
     List<SolarPlan> findByAddress(Address address);
     
     Optional<SolarPlan> findFirstByAddressOrderByCreatedAtDesc(Address address);
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.solarPlans")
+    })
+    Optional<SolarPlan> findByInputHash(String inputHash);
+    
+    List<SolarPlan> findByInputHashIn(Collection<String> inputHashes);
 }
@@ -0,0 +1,16 @@
+package com.communitysolar.repository;
+
+import com.communitysolar.model.Installation;
+import com.communitysolar.model.SolarUsage;
+import com.communitysolar.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Time-range reads that only touch the monthly partitions overlapping the range.
+ */
+public interface SolarUsageRepositoryCustom {
+    List<SolarUsage> findByUserAndReadingTimestampBetween(User user, LocalDateTime start, LocalDateTime end);
+    List<SolarUsage> findByInstallationAndReadingTimestampBetween(Installation installation, LocalDateTime start, LocalDateTime end);
+}
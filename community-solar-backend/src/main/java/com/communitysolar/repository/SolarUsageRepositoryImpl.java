@@ -0,0 +1,30 @@
+package com.communitysolar.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.communitysolar.model.Installation;
+import com.communitysolar.model.SolarUsage;
+import com.communitysolar.model.User;
+import com.communitysolar.service.ReadingPartitions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class SolarUsageRepositoryImpl implements SolarUsageRepositoryCustom {
+
+    @Autowired
+    private ReadingPartitions partitions;
+
+    @Override
+    public List<SolarUsage> findByUserAndReadingTimestampBetween(User user, LocalDateTime start, LocalDateTime end) {
+        return partitions.findBetween(SolarUsage.class, ReadingPartitions.Table.SOLAR_USAGE, "user_id", user.getId(),
+                start, end);
+    }
+
+    @Override
+    public List<SolarUsage> findByInstallationAndReadingTimestampBetween(Installation installation,
+            LocalDateTime start, LocalDateTime end) {
+        return partitions.findBetween(SolarUsage.class, ReadingPartitions.Table.SOLAR_USAGE, "installation_id",
+                installation.getId(), start, end);
+    }
+}
@@ -1,11 +1,21 @@
-
 package com.communitysolar.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.communitysolar.dto.auth.UserProfileResponse;
+import com.communitysolar.model.ERole;
 import com.communitysolar.model.User;
 
 @Repository
@@ -14,7 +24,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     Optional<User> findByEmail(String email);
     
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByEmail(String email);
+    
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesById(Long id);
+    
     Boolean existsByUsername(String username);
     
     Boolean existsByEmail(String email);
+    
+    List<User> findByEmailIn(Collection<String> emails);
+    
+    @Query("select u.username from User u where u.username in :usernames")
+    Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+    
+    @Query("select new com.communitysolar.dto.auth.UserProfileResponse("
+            + "u.id, u.username, u.email, u.firstName, u.lastName, u.phoneNumber) from User u where u.id = :id")
+    Optional<UserProfileResponse> findProfileById(@Param("id") Long id);
+    
+    @Query("select r.name from User u join u.roles r where u.id = :id")
+    List<ERole> findRoleNamesById(@Param("id") Long id);
+    
+    @Query("select u.claimsChangedAt from User u where u.username = :username")
+    Optional<LocalDateTime> findClaimsChangedAt(@Param("username") String username);
+    
+    @Modifying
+    @Transactional
+    @Query("update User u set u.claimsChangedAt = :changedAt where u.username = :username")
+    int markClaimsChanged(@Param("username") String username, @Param("changedAt") LocalDateTime changedAt);
 }
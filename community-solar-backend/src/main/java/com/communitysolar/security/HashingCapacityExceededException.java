@@ -0,0 +1,20 @@
+package com.communitysolar.security;
+
+/**
+ * Thrown when the password hashing pool is saturated and a request is shed
+ * instead of being queued.
+ */
+public class HashingCapacityExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public HashingCapacityExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,12 @@
+package com.communitysolar.security;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The verified contents of an access token. {@code userId} and {@code roles}
+ * are null for tokens issued before they were added as claims.
+ */
+public record JwtClaims(String tokenId, String username, Long userId, String email, List<String> roles,
+        Date issuedAt, Date expiration) {
+}
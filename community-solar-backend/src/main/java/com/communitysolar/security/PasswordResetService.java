@@ -0,0 +1,166 @@
+package com.communitysolar.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.communitysolar.model.PasswordResetToken;
+import com.communitysolar.model.User;
+import com.communitysolar.repository.PasswordResetTokenRepository;
+import com.communitysolar.repository.RefreshTokenRepository;
+import com.communitysolar.repository.UserRepository;
+
+/**
+ * Single-use, short-lived password reset tokens, mailed to the account's
+ * address. This is also how bulk-enrolled members, who are created without a
+ * usable password, set their first one. Completing a reset retires the user's
+ * other reset tokens and revokes their refresh tokens.
+ */
+@Service
+public class PasswordResetService {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordResetService.class);
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    private PasswordResetTokenRepository resetTokenRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private ObjectProvider<JavaMailSender> mailSender;
+
+    @Value("${app.auth.password-reset.expiration-ms}")
+    private long expirationMs;
+
+    // {token} is replaced with the reset token
+    @Value("${app.auth.password-reset.link-template}")
+    private String linkTemplate;
+
+    @Value("${app.auth.password-reset.mail-from}")
+    private String mailFrom;
+
+    /**
+     * Issues a token for the account with this email, if there is one, and
+     * mails it. Callers must answer the same way either way.
+     */
+    @Transactional
+    public void requestReset(String email) {
+        User user = userRepository.findByEmail(email.trim().toLowerCase(Locale.ROOT)).orElse(null);
+        if (user == null) {
+            return;
+        }
+        resetTokenRepository.retireAllForUser(user.getId());
+
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        PasswordResetToken resetToken = new PasswordResetToken();
+        resetToken.setTokenHash(hash(token));
+        resetToken.setUser(user);
+        resetToken.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(expirationMs)));
+        resetTokenRepository.save(resetToken);
+
+        send(user, linkTemplate.replace("{token}", token));
+    }
+
+    /**
+     * @return false if the token is unknown, expired or already used
+     */
+    @Transactional(readOnly = true)
+    public boolean isUsable(String token) {
+        return findUsable(token) != null;
+    }
+
+    /**
+     * @param encodedPassword the new password, already hashed by {@link PasswordHashingService#encode}
+     * @return false if the token is unknown, expired or already used
+     */
+    @Transactional
+    public boolean confirmReset(String token, String encodedPassword) {
+        PasswordResetToken resetToken = findUsable(token);
+        if (resetToken == null) {
+            return false;
+        }
+        User user = resetToken.getUser();
+        user.setPassword(encodedPassword);
+        userRepository.save(user);
+
+        resetTokenRepository.retireAllForUser(user.getId());
+        refreshTokenRepository.revokeAllForUser(user.getId());
+        userDetailsCache.invalidate(user.getUsername());
+        return true;
+    }
+
+    @Scheduled(cron = "${app.jwt.refresh-cleanup-cron}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = resetTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Deleted {} expired password reset tokens", deleted);
+        }
+    }
+
+    private PasswordResetToken findUsable(String token) {
+        PasswordResetToken resetToken = resetTokenRepository.findByTokenHash(hash(token)).orElse(null);
+        if (resetToken == null || resetToken.isUsed() || resetToken.getExpiresAt().isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        return resetToken;
+    }
+
+    private void send(User user, String link) {
+        JavaMailSender sender = mailSender.getIfAvailable();
+        if (sender == null) {
+            logger.warn("Mail is not configured (spring.mail.host); password reset for user {} was not sent", user.getId());
+            return;
+        }
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(mailFrom);
+        message.setTo(user.getEmail());
+        message.setSubject("Reset your Community Solar password");
+        message.setText("Use the link below to choose a new password. It expires in "
+                + Duration.ofMillis(expirationMs).toMinutes() + " minutes and can only be used once.\n\n" + link
+                + "\n\nIf you did not ask for this, you can ignore this email.");
+        try {
+            sender.send(message);
+        } catch (MailException e) {
+            logger.error("Could not send password reset mail for user {}", user.getId(), e);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.communitysolar.security;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Per-client request limits, applied after {@link AuthTokenFilter} so callers
+ * are identified by a known API key, then authenticated user, then remote
+ * address. Routes marked {@code by-address} (login, signup) are always keyed by
+ * remote address so a made-up key or a stolen token cannot buy a fresh bucket.
+ *
+ * Each bucket is a single {@link AtomicLong} holding the GCRA "theoretical
+ * arrival time": admitting a request is one CAS that pushes it forward by the
+ * route's emission interval, and the request is refused when that would put it
+ * more than a full burst ahead of now. This is equivalent to a token bucket but
+ * needs no refill bookkeeping or locks. Buckets live in a bounded Caffeine
+ * cache with idle expiry, so clients that go quiet cost nothing.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    static final String API_KEY_HEADER = "X-API-Key";
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private List<Route> routes;
+
+    private Route defaultRoute;
+
+    private Route loginAccountRoute;
+
+    private Set<String> apiKeyDigests;
+
+    private Cache<BucketKey, AtomicLong> buckets;
+
+    @PostConstruct
+    void init() {
+        routes = properties.getRoutes().stream()
+                .map(route -> new Route(route.getPattern(), route.getMethod(),
+                        route.getCapacity(), route.getRefillPerSecond(), route.isByAddress()))
+                .toList();
+        RateLimitProperties.Limit limit = properties.getDefaultLimit();
+        defaultRoute = new Route("default", null, limit.getCapacity(), limit.getRefillPerSecond(), false);
+        RateLimitProperties.Limit account = properties.getLoginAccountLimit();
+        loginAccountRoute = new Route("login-account", null, account.getCapacity(), account.getRefillPerSecond(), false);
+        apiKeyDigests = properties.getApiKeySha256().stream()
+                .filter(StringUtils::hasText)
+                .map(digest -> digest.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        // Maintenance runs inline on the calling thread: handing each drain to
+        // the common pool costs a thread wake-up, more than the lookup itself
+        buckets = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(Duration.ofSeconds(properties.getIdleEvictionSeconds()))
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Route route = resolveRoute(request);
+        String client = route.byAddress ? remoteAddress(request) : resolveClient(request);
+        AtomicLong bucket = buckets.get(new BucketKey(route, client), key -> new AtomicLong(Long.MIN_VALUE));
+
+        long waitNanos = route.tryAcquire(bucket, System.nanoTime());
+        if (waitNanos > 0) {
+            route.rejected.increment();
+            reject(request, response, waitNanos);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Charges one attempt against an account's login bucket, so guessing one
+     * account's password from many addresses is limited too.
+     *
+     * @return 0 if the attempt is admitted, otherwise the wait in nanoseconds
+     */
+    public long tryAcquireLogin(String account) {
+        if (!properties.isEnabled() || !StringUtils.hasText(account)) {
+            return 0;
+        }
+        String client = "account:" + account.trim().toLowerCase(Locale.ROOT);
+        AtomicLong bucket = buckets.get(new BucketKey(loginAccountRoute, client), key -> new AtomicLong(Long.MIN_VALUE));
+        long waitNanos = loginAccountRoute.tryAcquire(bucket, System.nanoTime());
+        if (waitNanos > 0) {
+            loginAccountRoute.rejected.increment();
+        }
+        return waitNanos;
+    }
+
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    private Route resolveRoute(HttpServletRequest request) {
+        String path = request.getServletPath();
+        for (Route route : routes) {
+            if ((route.method == null || route.method.equalsIgnoreCase(request.getMethod()))
+                    && path.startsWith(route.literalPrefix) && pathMatcher.match(route.pattern, path)) {
+                return route;
+            }
+        }
+        return defaultRoute;
+    }
+
+    private String resolveClient(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        if (StringUtils.hasText(apiKey) && !apiKeyDigests.isEmpty()) {
+            String digest = sha256(apiKey);
+            if (apiKeyDigests.contains(digest)) {
+                return "key:" + digest;
+            }
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl user) {
+            return "user:" + user.getId();
+        }
+        return remoteAddress(request);
+    }
+
+    private String remoteAddress(HttpServletRequest request) {
+        if (properties.isTrustForwardedFor()) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (StringUtils.hasText(forwardedFor)) {
+                int comma = forwardedFor.indexOf(',');
+                return "ip:" + (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = retryAfterSeconds(waitNanos);
+        logger.debug("Rate limit exceeded for {} {}", request.getMethod(), request.getServletPath());
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+
+        final Map<String, Object> body = new HashMap<>();
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        body.put("error", "Too Many Requests");
+        body.put("message", "Error: Rate limit exceeded. Please retry later.");
+        body.put("path", request.getServletPath());
+
+        mapper.writeValue(response.getOutputStream(), body);
+    }
+
+    /**
+     * A compiled limit. Routes compare by identity so they can key buckets
+     * directly.
+     */
+    private final class Route {
+        private final String pattern;
+        private final String method;
+        // Pattern text before its first wildcard; paths without it can't match
+        private final String literalPrefix;
+        private final long emissionNanos;
+        private final long burstNanos;
+        private final boolean byAddress;
+        private final Counter rejected;
+
+        Route(String pattern, String method, int capacity, double refillPerSecond, boolean byAddress) {
+            if (capacity < 1 || refillPerSecond <= 0) {
+                throw new IllegalArgumentException("Invalid rate limit for " + pattern
+                        + ": capacity and refill-per-second must be positive");
+            }
+            this.pattern = pattern;
+            this.method = StringUtils.hasText(method) ? method : null;
+            int wildcard = pattern.length();
+            for (char c : new char[] {'*', '?', '{'}) {
+                int at = pattern.indexOf(c);
+                if (at >= 0 && at < wildcard) {
+                    wildcard = at;
+                }
+            }
+            this.literalPrefix = pattern.substring(0, wildcard);
+            this.emissionNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+            this.burstNanos = emissionNanos * capacity;
+            this.byAddress = byAddress;
+            this.rejected = Counter.builder("http.server.requests.rate_limited")
+                    .tag("route", pattern)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * @return 0 if the request is admitted, otherwise how long the client
+         *         has to wait before the next request would be
+         */
+        long tryAcquire(AtomicLong bucket, long now) {
+            while (true) {
+                long arrival = bucket.get();
+                long next = Math.max(arrival, now) + emissionNanos;
+                long ahead = next - now;
+                if (ahead > burstNanos) {
+                    return ahead - burstNanos;
+                }
+                if (bucket.compareAndSet(arrival, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private record BucketKey(Route route, String client) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.communitysolar.security;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Request rate limits, bound from {@code app.rate-limit.*}. Routes are matched
+ * in order against the servlet path (Ant-style patterns); requests that match
+ * no route use the default limit.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Upper bound on tracked buckets; least recently used clients are dropped first
+    private long maxClients = 200_000;
+
+    // Buckets untouched for this long are evicted (a fresh bucket starts full)
+    private long idleEvictionSeconds = 600;
+
+    // Honour X-Forwarded-For only when running behind a trusted proxy
+    private boolean trustForwardedFor = false;
+
+    // SHA-256 (hex) of the API keys that get a bucket of their own; any other
+    // X-API-Key value is ignored and the caller is limited as usual
+    private List<String> apiKeySha256 = new ArrayList<>();
+
+    private Limit defaultLimit = new Limit();
+
+    // Failed-login guard per account, on top of the per-address login route
+    private Limit loginAccountLimit = new Limit();
+
+    private List<Route> routes = new ArrayList<>();
+
+    @Data
+    public static class Limit {
+        // Requests that may be made back to back from a full bucket
+        private int capacity = 100;
+
+        // Sustained rate the bucket refills at
+        private double refillPerSecond = 50.0;
+    }
+
+    @Data
+    public static class Route {
+        private String pattern;
+
+        // Null matches every method
+        private String method;
+
+        private int capacity;
+
+        private double refillPerSecond;
+
+        // Key by client address even for authenticated callers and API keys
+        private boolean byAddress;
+    }
+}
@@ -0,0 +1,118 @@
+package com.communitysolar.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.communitysolar.model.RefreshToken;
+import com.communitysolar.repository.RefreshTokenRepository;
+import com.communitysolar.repository.UserRepository;
+
+/**
+ * Issues and rotates opaque refresh tokens. Each refresh consumes the presented
+ * token and returns a new one from the same family; presenting a token that was
+ * already consumed revokes the whole family, since it means the token was copied.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.jwt.refresh-expiration-ms}")
+    private long refreshExpirationMs;
+
+    /**
+     * The outcome of a successful rotation: the principal to issue a new access
+     * token for and the replacement refresh token.
+     */
+    public record Rotation(UserDetailsImpl user, String refreshToken) {
+    }
+
+    @Transactional
+    public String issue(Long userId) {
+        return issue(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * @return the rotation result, or null if the token is unknown, expired or
+     *         has already been used
+     */
+    @Transactional
+    public Rotation rotate(String token) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(token)).orElse(null);
+        if (current == null || current.getExpiresAt().isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        if (current.isRevoked()) {
+            logger.warn("Refresh token reuse detected for user {}; revoking token family", current.getUser().getId());
+            refreshTokenRepository.revokeFamily(current.getFamilyId());
+            return null;
+        }
+
+        current.setRevoked(true);
+        refreshTokenRepository.save(current);
+
+        UserDetailsImpl user = UserDetailsImpl.build(current.getUser());
+        return new Rotation(user, issue(user.getId(), current.getFamilyId()));
+    }
+
+    @Transactional
+    public void revoke(String token) {
+        refreshTokenRepository.findByTokenHash(hash(token))
+                .ifPresent(current -> refreshTokenRepository.revokeFamily(current.getFamilyId()));
+    }
+
+    @Scheduled(cron = "${app.jwt.refresh-cleanup-cron}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    private String issue(Long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setUser(userRepository.getReferenceById(userId));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshExpirationMs)));
+        refreshTokenRepository.save(refreshToken);
+
+        return token;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
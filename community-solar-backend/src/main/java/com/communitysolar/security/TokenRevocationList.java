@@ -0,0 +1,141 @@
+package com.communitysolar.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory set of revoked access-token ids. Every authenticated request is
+ * checked against a Bloom filter first, so the common case (token not revoked)
+ * costs a few bit lookups; only a filter hit falls through to the exact map.
+ * Entries are dropped once the token they revoke has expired, and the filter is
+ * rebuilt from the remaining entries so it doesn't fill up over time.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final int HASH_FUNCTIONS = 7;
+
+    @Value("${app.jwt.revocation.expected-entries}")
+    private int expectedEntries;
+
+    // token id -> expiry of the revoked token (epoch millis)
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    // Serializes writers so a rebuild can't miss a revocation made while it runs;
+    // readers never take it.
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile BloomFilter filter;
+
+    @PostConstruct
+    void init() {
+        filter = new BloomFilter(expectedEntries);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return filter.mightContain(tokenId) && revoked.containsKey(tokenId);
+    }
+
+    public void revoke(String tokenId, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            revoked.put(tokenId, expiresAtMillis);
+            filter.add(tokenId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.purge-interval-ms}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        writeLock.lock();
+        try {
+            if (!revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+                return;
+            }
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2));
+            revoked.keySet().forEach(rebuilt::add);
+            filter = rebuilt;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Fixed-size Bloom filter sized for a 1% false-positive rate at the expected
+     * number of entries, using double hashing over a 64-bit FNV-1a hash.
+     */
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+
+        BloomFilter(int expectedEntries) {
+            long size = (long) Math.ceil(-expectedEntries * Math.log(0.01) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.max(1, (size + 63) >>> 6);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words << 6;
+        }
+
+        void add(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= HASH_FUNCTIONS; i++) {
+                long bit = index(h1 + i * h2);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= HASH_FUNCTIONS; i++) {
+                long bit = index(h1 + i * h2);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long index(int combined) {
+            return (combined & 0x7fffffffL) % bitCount;
+        }
+
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x100000001b3L;
+            }
+            // final avalanche so both 32-bit halves are well mixed
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.communitysolar.security;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.communitysolar.repository.UserRepository;
+import com.communitysolar.util.CallerRunsLoader;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Bounded, expiring cache of principals for requests whose token claims can't
+ * be trusted as-is. Invalidating a user also marks every token issued to them
+ * up to that point as stale, so their next request is resolved from the
+ * database instead of from the roles embedded in an older token.
+ *
+ * The time of that change is stored on the user row, and only cached here for
+ * {@code ttl-seconds}. Losing a cache entry therefore means one more lookup,
+ * never trusting a stale token, and other instances pick a change up within
+ * the TTL.
+ */
+@Component
+public class UserDetailsCache {
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Value("${app.auth.user-cache.max-size}")
+    private long maxSize;
+
+    @Value("${app.auth.user-cache.ttl-seconds}")
+    private long ttlSeconds;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Async only so a miss can be loaded outside the cache's locks (see CallerRunsLoader)
+    private AsyncCache<String, UserDetailsImpl> principals;
+
+    // username -> epoch millis of the last role/profile change, 0 if none
+    private AsyncCache<String, Long> changedAt;
+
+    @PostConstruct
+    void init() {
+        principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .buildAsync();
+        changedAt = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .buildAsync();
+    }
+
+    public UserDetailsImpl get(String username) {
+        return CallerRunsLoader.get(principals, username, name -> {
+            UserDetailsImpl loaded = (UserDetailsImpl) userDetailsService.loadUserByUsername(name);
+            return new UserDetailsImpl(loaded.getId(), loaded.getUsername(), loaded.getEmail(), null,
+                    loaded.getAuthorities());
+        });
+    }
+
+    /**
+     * Whether the claims of a token issued at {@code issuedAtMillis} still reflect
+     * the user's current roles and profile.
+     */
+    public boolean isCurrent(String username, long issuedAtMillis) {
+        long changed = CallerRunsLoader.get(changedAt, username, name -> userRepository.findClaimsChangedAt(name)
+                .map(time -> Timestamp.valueOf(time).getTime())
+                .orElse(0L));
+        // Token issue times have second precision, so a token from the same second
+        // as the change is treated as stale.
+        return issuedAtMillis > changed;
+    }
+
+    public void invalidate(String username) {
+        LocalDateTime now = LocalDateTime.now();
+        userRepository.markClaimsChanged(username, now);
+        changedAt.synchronous().put(username, Timestamp.valueOf(now).getTime());
+        principals.synchronous().invalidate(username);
+    }
+}
@@ -0,0 +1,74 @@
+package com.communitysolar.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.communitysolar.dto.community.CommunityResponse;
+import com.communitysolar.repository.CommunityRepository;
+import com.communitysolar.util.CallerRunsLoader;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Community listings, all of them or by zip code, kept for a few seconds.
+ * Hibernate's query cache can't hold these: every join or leave updates the
+ * community's totals, which invalidates every cached query over the table.
+ * Here member counts and weights may lag by up to the TTL instead; a new
+ * community evicts the listings straight away.
+ */
+@Service
+public class CommunityListingService {
+
+    // Key for the unfiltered listing
+    private static final String ALL = "";
+
+    @Autowired
+    private CommunityRepository communityRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.community.listing.cache-ttl-seconds}")
+    private long ttlSeconds;
+
+    @Value("${app.community.listing.cache-max-size}")
+    private long maxSize;
+
+    // Async only so a miss can be loaded outside the cache's locks (see CallerRunsLoader)
+    private AsyncCache<String, List<CommunityResponse>> listings;
+
+    // Only misses open a transaction; read-only so they can run on the replica
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        listings = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .buildAsync();
+    }
+
+    /**
+     * @param zipCode null or empty for every community
+     */
+    public List<CommunityResponse> getCommunities(String zipCode) {
+        String key = zipCode != null ? zipCode : ALL;
+        return CallerRunsLoader.get(listings, key, k -> readOnlyTransaction.execute(status -> k.isEmpty()
+                ? communityRepository.findAllResponses()
+                : communityRepository.findResponsesByZipCode(k)));
+    }
+
+    public void evictAll() {
+        listings.synchronous().invalidateAll();
+    }
+}
@@ -0,0 +1,104 @@
+package com.communitysolar.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.communitysolar.model.Community;
+import com.communitysolar.model.CommunityMember;
+import com.communitysolar.model.User;
+import com.communitysolar.repository.CommunityMemberRepository;
+import com.communitysolar.repository.CommunityRepository;
+
+/**
+ * Membership changes touch exactly one member row plus the community's running
+ * totals. The community row is locked while its totals are adjusted so
+ * concurrent joins never overwrite each other's increments, and the change goes
+ * through the entity so the cached copy is updated rather than the whole region
+ * being evicted as a bulk UPDATE would.
+ */
+@Service
+public class CommunityMembershipService {
+
+    @Autowired
+    private CommunityRepository communityRepository;
+
+    @Autowired
+    private CommunityMemberRepository communityMemberRepository;
+
+    @Transactional
+    public Community join(Community community, User user) {
+        CommunityMember member = new CommunityMember();
+        member.setCommunity(community);
+        member.setUser(user);
+        communityMemberRepository.save(member);
+
+        return adjustTotals(community.getId(), 1, member.getAllocationWeight(), member.getCostWeight());
+    }
+
+    @Transactional
+    public boolean leave(Community community, User user) {
+        return communityMemberRepository.findForUpdate(community, user.getId())
+                .map(member -> {
+                    communityMemberRepository.delete(member);
+                    adjustTotals(community.getId(), -1,
+                            -weight(member.getAllocationWeight()), -weight(member.getCostWeight()));
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Applies new weights to the given members (keyed by user id, values are
+     * {allocationWeight, costWeight} with null meaning unchanged) and folds the
+     * differences into a single update of the community totals.
+     *
+     * @return the number of members that were updated
+     */
+    @Transactional
+    public int updateWeights(Community community, Map<Long, Double[]> weightsByUserId) {
+        double allocationDelta = 0.0;
+        double costDelta = 0.0;
+        int updated = 0;
+
+        for (Map.Entry<Long, Double[]> entry : weightsByUserId.entrySet()) {
+            CommunityMember member = communityMemberRepository.findForUpdate(community, entry.getKey()).orElse(null);
+            if (member == null) {
+                continue;
+            }
+            Double allocationWeight = entry.getValue()[0];
+            Double costWeight = entry.getValue()[1];
+            if (allocationWeight != null) {
+                allocationDelta += allocationWeight - weight(member.getAllocationWeight());
+                member.setAllocationWeight(allocationWeight);
+            }
+            if (costWeight != null) {
+                costDelta += costWeight - weight(member.getCostWeight());
+                member.setCostWeight(costWeight);
+            }
+            communityMemberRepository.save(member);
+            updated++;
+        }
+
+        if (updated > 0) {
+            adjustTotals(community.getId(), 0, allocationDelta, costDelta);
+        }
+        return updated;
+    }
+
+    @Transactional
+    public Community adjustTotals(Long communityId, int memberDelta, double allocationDelta, double costDelta) {
+        Community community = communityRepository.findForUpdate(communityId)
+                .orElseThrow(() -> new RuntimeException("Error: Community not found."));
+        community.setMemberCount(community.getMemberCount() + memberDelta);
+        community.setTotalAllocationWeight(weight(community.getTotalAllocationWeight()) + allocationDelta);
+        community.setTotalCostWeight(weight(community.getTotalCostWeight()) + costDelta);
+        return communityRepository.save(community);
+    }
+
+    private static double weight(Double value) {
+        return value != null ? value : 0.0;
+    }
+}
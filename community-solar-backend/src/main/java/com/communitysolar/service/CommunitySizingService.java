@@ -0,0 +1,270 @@
+package com.communitysolar.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.communitysolar.model.Address;
+import com.communitysolar.model.Community;
+import com.communitysolar.model.SolarPlan;
+import com.communitysolar.model.SolarPlanAllocation;
+import com.communitysolar.repository.AddressRepository;
+import com.communitysolar.repository.SolarPlanAllocationRepository;
+import com.communitysolar.repository.SolarPlanRepository;
+import com.communitysolar.util.SolarPlanCalculator;
+import com.communitysolar.util.TNEBTariffCalculator;
+
+/**
+ * Designs one shared system across a community's member roofs, choosing how
+ * many panels go on each roof to minimise the community payback.
+ *
+ * Output is pooled and credited to members in proportion to their usage, so
+ * savings depend only on total production. The search is a grouped knapsack
+ * over cost: cost is counted in panel-price units, with each roof's fixed
+ * mounting and wiring cost rounded into the same unit, and dp[b] holds the
+ * highest production reachable at cost b. Every non-dominated budget is then
+ * priced through the tariff and the one with the shortest payback wins. For
+ * R roofs with up to K panels each this is O(R * B * K) where B = R * (K + fixed).
+ * Both the table (R * B cells) and the search are bounded by configuration, as
+ * a large fixed cost relative to the panel price or a huge roof makes B explode.
+ */
+@Service
+public class CommunitySizingService {
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private SolarPlanRepository solarPlanRepository;
+
+    @Autowired
+    private SolarPlanAllocationRepository solarPlanAllocationRepository;
+
+    @Autowired
+    private HourlySolarSimulator simulator;
+
+    @Value("${app.solar.community.max-table-cells}")
+    private long maxTableCells;
+
+    @Value("${app.solar.community.max-search-steps}")
+    private long maxSearchSteps;
+
+    @Transactional
+    public Map<String, Object> optimize(Community community, double costPerKw, double fixedCostPerRoof) {
+        List<Address> addresses = addressRepository.findByCommunityId(community.getId());
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("The community has no member addresses.");
+        }
+
+        int count = addresses.size();
+        double[] usage = new double[count];
+        double totalUsage = 0.0;
+        for (int i = 0; i < count; i++) {
+            Double monthlyUsage = addresses.get(i).getMonthlyUsage();
+            usage[i] = monthlyUsage != null && monthlyUsage > 0 ? monthlyUsage : 0.0;
+            totalUsage += usage[i];
+        }
+        if (totalUsage <= 0) {
+            throw new IllegalArgumentException("No member address has energy consumption recorded.");
+        }
+
+        // Roofs that can take panels: index into addresses, capacity and yield per panel
+        double panelKw = SolarPlanCalculator.PANEL_WATTS / 1000.0;
+        List<Integer> roofs = new ArrayList<>();
+        List<Integer> capacities = new ArrayList<>();
+        List<Double> panelYields = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Address address = addresses.get(i);
+            if (address.getHomeSize() == null || address.getHomeSize() <= 0) {
+                continue;
+            }
+            double panels = Math.floor(SolarPlanCalculator.maxSystemSizeKw(address.getHomeSize()) / panelKw);
+            if (panels > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Address " + address.getId() + " has room for more than "
+                        + Short.MAX_VALUE + " panels; check its home size.");
+            }
+            int capacity = (int) panels;
+            if (capacity > 0) {
+                roofs.add(i);
+                capacities.add(capacity);
+                panelYields.add(panelKw * simulator.specificYield(address.getZipCode(), address.getRoofType()));
+            }
+        }
+        if (roofs.isEmpty()) {
+            throw new IllegalArgumentException("No member address has roof data to place panels on.");
+        }
+
+        double panelCost = panelKw * costPerKw;
+        double fixedUnitsExact = Math.rint(fixedCostPerRoof / panelCost);
+        int roofCount = roofs.size();
+        long budgetLong = 0;
+        double steps = 0;
+        for (int capacity : capacities) {
+            budgetLong += (long) Math.min(fixedUnitsExact, Integer.MAX_VALUE) + capacity;
+            steps += (double) capacity * budgetLong;
+        }
+        if (fixedUnitsExact > Integer.MAX_VALUE || budgetLong >= Integer.MAX_VALUE
+                || (double) roofCount * (budgetLong + 1) > maxTableCells || steps > maxSearchSteps) {
+            throw new IllegalArgumentException("The design is too large to search: lower the fixed cost per roof "
+                    + "relative to the panel cost, or design for fewer roofs.");
+        }
+        int fixedUnits = (int) fixedUnitsExact;
+        int budget = (int) budgetLong;
+
+        double[] production = new double[budget + 1];
+        double[] cost = new double[budget + 1];
+        Arrays.fill(production, Double.NEGATIVE_INFINITY);
+        production[0] = 0.0;
+        short[][] choice = new short[roofCount][budget + 1];
+
+        for (int r = 0; r < roofCount; r++) {
+            int capacity = capacities.get(r);
+            double panelYield = panelYields.get(r);
+            double[] nextProduction = production.clone();
+            double[] nextCost = cost.clone();
+            for (int b = budget; b > fixedUnits; b--) {
+                for (int panels = 1; panels <= capacity; panels++) {
+                    int from = b - fixedUnits - panels;
+                    if (from < 0) {
+                        break;
+                    }
+                    if (production[from] == Double.NEGATIVE_INFINITY) {
+                        continue;
+                    }
+                    double value = production[from] + panels * panelYield;
+                    if (value > nextProduction[b]) {
+                        nextProduction[b] = value;
+                        nextCost[b] = cost[from] + fixedCostPerRoof + panels * panelCost;
+                        choice[r][b] = (short) panels;
+                    }
+                }
+            }
+            production = nextProduction;
+            cost = nextCost;
+        }
+
+        double[] monthShare = new double[12];
+        double annualPerKw = simulator.specificYield(community.getZipCode(), null, monthShare);
+        for (int month = 0; month < 12; month++) {
+            monthShare[month] /= annualPerKw;
+        }
+        double[] baseBills = new double[count];
+        for (int i = 0; i < count; i++) {
+            baseBills[i] = TNEBTariffCalculator.calculateBill(usage[i]);
+        }
+
+        int bestBudget = -1;
+        double bestPayback = Double.POSITIVE_INFINITY;
+        double bestSavings = 0.0;
+        double bestSoFar = 0.0;
+        int evaluated = 0;
+        for (int b = 1; b <= budget; b++) {
+            // A larger budget that doesn't add production can't shorten the payback
+            if (production[b] <= bestSoFar) {
+                continue;
+            }
+            bestSoFar = production[b];
+            evaluated++;
+            double savings = annualSavings(production[b], monthShare, usage, totalUsage, baseBills);
+            if (savings > 0 && cost[b] / savings < bestPayback) {
+                bestPayback = cost[b] / savings;
+                bestBudget = b;
+                bestSavings = savings;
+            }
+        }
+        if (bestBudget < 0) {
+            throw new IllegalArgumentException("No design produces savings under the current tariff.");
+        }
+
+        int[] panelsByAddress = new int[count];
+        int totalPanels = 0;
+        int roofsUsed = 0;
+        for (int r = roofCount - 1, b = bestBudget; r >= 0 && b > 0; r--) {
+            int panels = choice[r][b];
+            if (panels > 0) {
+                panelsByAddress[roofs.get(r)] = panels;
+                totalPanels += panels;
+                roofsUsed++;
+                b -= fixedUnits + panels;
+            }
+        }
+
+        double totalProduction = production[bestBudget];
+        SolarPlan plan = new SolarPlan();
+        plan.setCommunity(community);
+        plan.setPanelCount(totalPanels);
+        plan.setSystemSizeKw(totalPanels * panelKw);
+        plan.setEstimatedProductionKwh(totalProduction);
+        plan.setEstimatedCost(cost[bestBudget]);
+        plan.setRoiYears(bestPayback);
+        solarPlanRepository.save(plan);
+
+        List<SolarPlanAllocation> allocations = new ArrayList<>(count);
+        List<Map<String, Object>> allocationResults = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int roofIndex = roofs.indexOf(i);
+            double roofProduction = roofIndex >= 0 ? panelsByAddress[i] * panelYields.get(roofIndex) : 0.0;
+
+            SolarPlanAllocation allocation = new SolarPlanAllocation();
+            allocation.setSolarPlan(plan);
+            allocation.setAddress(addresses.get(i));
+            allocation.setPanelCount(panelsByAddress[i]);
+            allocation.setSystemSizeKw(panelsByAddress[i] * panelKw);
+            allocation.setEstimatedProductionKwh(roofProduction);
+            allocation.setAllocatedProductionKwh(totalProduction * usage[i] / totalUsage);
+            allocations.add(allocation);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("addressId", addresses.get(i).getId());
+            result.put("panelCount", allocation.getPanelCount());
+            result.put("systemSizeKw", allocation.getSystemSizeKw());
+            result.put("estimatedProductionKwh", allocation.getEstimatedProductionKwh());
+            result.put("allocatedProductionKwh", allocation.getAllocatedProductionKwh());
+            allocationResults.add(result);
+        }
+        solarPlanAllocationRepository.saveAll(allocations);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("planId", plan.getId());
+        response.put("communityId", community.getId());
+        response.put("panelCount", totalPanels);
+        response.put("systemSizeKw", plan.getSystemSizeKw());
+        response.put("estimatedProductionKwh", totalProduction);
+        response.put("estimatedCost", plan.getEstimatedCost());
+        response.put("annualSavings", bestSavings);
+        response.put("roiYears", bestPayback);
+        response.put("addresses", count);
+        response.put("roofsAvailable", roofCount);
+        response.put("roofsUsed", roofsUsed);
+        response.put("designsEvaluated", evaluated);
+        response.put("allocations", allocationResults);
+        return response;
+    }
+
+    /**
+     * First-year savings when the given annual production is pooled and
+     * credited to members by usage share, priced month by month.
+     */
+    private static double annualSavings(double annualProduction, double[] monthShare, double[] usage,
+            double totalUsage, double[] baseBills) {
+        double savings = 0.0;
+        for (int month = 0; month < 12; month++) {
+            // Every member's credit covers the same fraction of its usage
+            double coverage = annualProduction * monthShare[month] / totalUsage;
+            for (int i = 0; i < usage.length; i++) {
+                if (usage[i] > 0) {
+                    double gridUnits = Math.max(0.0, usage[i] * (1.0 - coverage));
+                    savings += baseBills[i] - TNEBTariffCalculator.calculateBill(gridUnits);
+                }
+            }
+        }
+        return savings;
+    }
+}
@@ -0,0 +1,229 @@
+package com.communitysolar.service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.communitysolar.dto.monitoring.EnergyReadingRequest;
+import com.communitysolar.model.EnergyData;
+import com.communitysolar.model.Installation;
+import com.communitysolar.model.InstallationAlert;
+import com.communitysolar.repository.EnergyDataRepository;
+import com.communitysolar.repository.InstallationAlertRepository;
+import com.communitysolar.repository.InstallationRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Stores batches of meter readings, adds them to the installations'
+ * performance counters and feeds them through the
+ * {@link UnderperformanceDetector}, persisting the alerts it raises or
+ * resolves.
+ *
+ * Providers may only send readings for their own installations. Readings
+ * outside the partitioned months (past retention, or beyond the months
+ * created ahead) are rejected rather than creating tables for them; month
+ * partitions are created for readings that arrive ahead of the scheduled
+ * ones.
+ *
+ * The detector only sees a batch once it has been committed, so a failed
+ * batch leaves no trace in its state. Installations are looked up only the
+ * first time the detector sees them. Reading timestamps are local wall-clock
+ * time, so hours are taken from them as-is.
+ */
+@Service
+public class EnergyDataIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(EnergyDataIngestionService.class);
+
+    @Autowired
+    private EnergyDataRepository energyDataRepository;
+
+    @Autowired
+    private InstallationRepository installationRepository;
+
+    @Autowired
+    private InstallationAlertRepository alertRepository;
+
+    @Autowired
+    private UnderperformanceDetector detector;
+
+    @Autowired
+    private InstallationPerformanceService performanceService;
+
+    @Autowired
+    private ReadingPartitions partitions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate newTransaction;
+
+    @PostConstruct
+    void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @param providerUserId the calling provider's user id, or null for an
+     *        admin, who may send readings for any installation
+     */
+    public Map<String, Object> ingest(List<EnergyReadingRequest> readings, Long providerUserId) {
+        Map<String, Object> response = new HashMap<>();
+        List<EnergyReadingRequest> stored = newTransaction.execute(status -> store(readings, providerUserId, response));
+
+        // Committed: only now let the readings move the detector
+        stored.sort(Comparator.comparing(EnergyReadingRequest::getTimestamp));
+        int late = 0;
+        for (EnergyReadingRequest reading : stored) {
+            if (!detector.record(reading.getInstallationId(), reading.getTimestamp().toEpochSecond(ZoneOffset.UTC),
+                    reading.getEnergyProduced())) {
+                late++;
+            }
+        }
+        response.put("notEvaluated", late);
+        persistEvents(response);
+        return response;
+    }
+
+    /**
+     * Closes the hours of installations that have stopped reporting, so they
+     * are judged too.
+     */
+    @Scheduled(fixedDelayString = "${app.monitoring.detector.sweep-interval-ms}")
+    public void sweepSilentInstallations() {
+        detector.sweep(Math.floorDiv(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC), 3600L));
+        persistEvents(new HashMap<>());
+    }
+
+    private List<EnergyReadingRequest> store(List<EnergyReadingRequest> readings, Long providerUserId,
+            Map<String, Object> response) {
+        Set<Long> ids = new HashSet<>();
+        for (EnergyReadingRequest reading : readings) {
+            if (reading.getInstallationId() != null) {
+                ids.add(reading.getInstallationId());
+            }
+        }
+        Set<Long> allowed = providerUserId != null
+                ? new HashSet<>(installationRepository.findIdsByIdInAndProviderUserId(ids, providerUserId))
+                : null;
+
+        Set<Long> unknown = new HashSet<>();
+        for (Long id : ids) {
+            if ((allowed == null || allowed.contains(id)) && !detector.isKnown(id)) {
+                unknown.add(id);
+            }
+        }
+        Set<Long> existing = new HashSet<>();
+        if (!unknown.isEmpty()) {
+            for (Installation installation : installationRepository.findAllById(unknown)) {
+                existing.add(installation.getId());
+                Double size = installation.getTotalCapacityKw();
+                if (size == null && installation.getSolarPlan() != null) {
+                    size = installation.getSolarPlan().getSystemSizeKw();
+                }
+                detector.register(installation.getId(),
+                        installation.getCommunity() != null ? installation.getCommunity().getId() : null, size);
+            }
+        }
+
+        List<EnergyData> rows = new ArrayList<>(readings.size());
+        List<EnergyReadingRequest> stored = new ArrayList<>(readings.size());
+        Set<YearMonth> months = new HashSet<>();
+        int rejected = 0;
+        int notOwned = 0;
+        for (EnergyReadingRequest reading : readings) {
+            Long installationId = reading.getInstallationId();
+            if (installationId != null && allowed != null && !allowed.contains(installationId)) {
+                notOwned++;
+                continue;
+            }
+            if (installationId == null || reading.getTimestamp() == null || reading.getEnergyProduced() == null
+                    || reading.getEnergyProduced() < 0 || !partitions.accepts(YearMonth.from(reading.getTimestamp()))
+                    || (unknown.contains(installationId) && !existing.contains(installationId))) {
+                rejected++;
+                continue;
+            }
+
+            EnergyData data = new EnergyData();
+            data.setInstallation(installationRepository.getReferenceById(installationId));
+            data.setTimestamp(reading.getTimestamp());
+            data.setEnergyProduced(reading.getEnergyProduced());
+            data.setEnergyConsumed(reading.getEnergyConsumed());
+            data.setGridImported(reading.getGridImported());
+            data.setGridExported(reading.getGridExported());
+            rows.add(data);
+            stored.add(reading);
+            months.add(YearMonth.from(reading.getTimestamp()));
+        }
+        partitions.ensureMonths(ReadingPartitions.Table.ENERGY_DATA, months);
+        energyDataRepository.saveAll(rows);
+        performanceService.record(rows);
+
+        response.put("accepted", rows.size());
+        response.put("rejected", rejected);
+        response.put("notOwned", notOwned);
+        return stored;
+    }
+
+    private void persistEvents(Map<String, Object> response) {
+        List<UnderperformanceDetector.Event> events = new ArrayList<>();
+        detector.drainEvents(events);
+        int[] counts = new int[2];
+        if (!events.isEmpty()) {
+            try {
+                newTransaction.executeWithoutResult(status -> {
+                    for (UnderperformanceDetector.Event event : events) {
+                        if (event.resolved()) {
+                            counts[1] += resolveAlert(event) ? 1 : 0;
+                        } else {
+                            raiseAlert(event);
+                            counts[0]++;
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.error("Could not store {} alert changes", events.size(), e);
+                counts[0] = 0;
+                counts[1] = 0;
+            }
+        }
+        response.put("alertsRaised", counts[0]);
+        response.put("alertsResolved", counts[1]);
+    }
+    private void raiseAlert(UnderperformanceDetector.Event event) {
+        InstallationAlert alert = new InstallationAlert();
+        alert.setInstallation(installationRepository.getReferenceById(event.installationId()));
+        alert.setIntervalStart(LocalDateTime.ofEpochSecond(event.intervalStartEpochSecond(), 0, ZoneOffset.UTC));
+        alert.setActualKwhPerKw(event.actualKwhPerKw());
+        alert.setBaselineKwhPerKw(event.baselineKwhPerKw());
+        alert.setNeighbourKwhPerKw(Double.isNaN(event.neighbourKwhPerKw()) ? null : event.neighbourKwhPerKw());
+        alert.setDetectedAt(LocalDateTime.now());
+        alertRepository.save(alert);
+    }
+
+    private boolean resolveAlert(UnderperformanceDetector.Event event) {
+        return alertRepository.findFirstByInstallationIdAndResolvedAtIsNullOrderByIdDesc(event.installationId())
+                .map(alert -> {
+                    alert.setResolvedAt(LocalDateTime.now());
+                    return true;
+                })
+                .orElse(false);
+    }
+}
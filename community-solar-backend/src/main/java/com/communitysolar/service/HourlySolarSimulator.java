@@ -0,0 +1,104 @@
+package com.communitysolar.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.communitysolar.util.SolarPlanCalculator;
+
+/**
+ * Runs an hour-by-hour simulation of a rooftop system over a TMY profile. The
+ * loop reads the shared profile buffer with absolute gets and accumulates into
+ * primitives, so a run allocates nothing.
+ *
+ * The model per hour: plane-of-array irradiance is GHI scaled by the roof
+ * factor, cell temperature follows the NOCT approximation, DC output is
+ * derated by the module temperature coefficient and fixed system losses, and
+ * AC output is clipped at the inverter rating.
+ */
+@Component
+public class HourlySolarSimulator {
+
+    // Module temperature coefficient of power, per °C above 25 °C
+    static final double TEMP_COEFFICIENT = -0.004;
+
+    // Nominal operating cell temperature, °C
+    static final double NOCT = 45.0;
+
+    // Soiling, wiring, mismatch and inverter efficiency
+    static final double SYSTEM_LOSSES = 0.14;
+
+    // DC/AC sizing ratio; output per kWp is clipped at 1 / ratio
+    static final double DC_AC_RATIO = 1.1;
+
+    @Autowired
+    private IrradianceProfileStore profileStore;
+
+    @Autowired
+    private SolarPotentialTiles tiles;
+
+    /**
+     * @return annual output per kWp installed at the given PIN code on the
+     *         given roof type, kWh; taken from the precomputed tiles when the
+     *         PIN code has one, simulated otherwise
+     */
+    public double specificYield(String zipCode, String roofType) {
+        float precomputed = tiles.specificYield(zipCode, roofType);
+        if (!Float.isNaN(precomputed)) {
+            return precomputed;
+        }
+        return specificYield(profileStore, zipCode, roofType, null);
+    }
+
+    /**
+     * @return the versions of the tiles and profiles {@link #specificYield(String, String)}
+     *         reads; changes whenever either data file does
+     */
+    public String dataVersion() {
+        return tiles.getDataVersion() + "/" + profileStore.getDataVersion();
+    }
+
+    /**
+     * Always simulates, since tiles hold annual totals only.
+     *
+     * @param monthlyKwh if not null, receives output per kWp for each month
+     */
+    public double specificYield(String zipCode, String roofType, double[] monthlyKwh) {
+        return specificYield(profileStore, zipCode, roofType, monthlyKwh);
+    }
+
+    public static double specificYield(IrradianceProfileStore store, String zipCode, String roofType,
+            double[] monthlyKwh) {
+        ByteBuffer buffer = store.buffer(zipCode);
+        return simulate(buffer, store.offset(buffer, zipCode), SolarPlanCalculator.roofFactor(roofType), monthlyKwh);
+    }
+
+    static double simulate(ByteBuffer profile, int offset, double roofFactor, double[] monthlyKwh) {
+        double heatingPerWatt = (NOCT - 20.0) / 800.0;
+        double acLimit = 1.0 / DC_AC_RATIO;
+        double derate = 1.0 - SYSTEM_LOSSES;
+        if (monthlyKwh != null) {
+            Arrays.fill(monthlyKwh, 0.0);
+        }
+
+        double annual = 0.0;
+        int position = offset;
+        for (int hour = 0; hour < IrradianceProfileStore.HOURS; hour++, position += IrradianceProfileStore.BYTES_PER_HOUR) {
+            int ghi = profile.getShort(position);
+            if (ghi <= 0) {
+                continue;
+            }
+            double poa = ghi * roofFactor;
+            double cellTemp = profile.getShort(position + 2) / 10.0 + poa * heatingPerWatt;
+            double dc = poa / 1000.0 * (1.0 + TEMP_COEFFICIENT * (cellTemp - 25.0));
+            double ac = Math.min(dc * derate, acLimit);
+            annual += ac;
+            if (monthlyKwh != null) {
+                monthlyKwh[IrradianceProfileStore.HOUR_MONTH[hour]] += ac;
+            }
+        }
+        return annual;
+    }
+}
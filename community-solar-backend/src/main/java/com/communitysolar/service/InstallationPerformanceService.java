@@ -0,0 +1,351 @@
+package com.communitysolar.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.communitysolar.model.Address;
+import com.communitysolar.model.EnergyData;
+import com.communitysolar.model.Installation;
+import com.communitysolar.model.InstallationPerformance;
+import com.communitysolar.repository.EnergyDataRepository;
+import com.communitysolar.repository.InstallationPerformanceRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Maintains {@link InstallationPerformance} counters and derives KPIs from them.
+ *
+ * Ingestion locks the counter rows of a batch's installations (in id order)
+ * and applies the readings oldest first, so concurrent batches for the same
+ * installation serialise on the row instead of losing updates. A missing row
+ * is created in its own transaction; if another batch created it first, the
+ * unique key makes that a no-op.
+ *
+ * KPIs for lifetime, year-to-date and month-to-date:
+ * <ul>
+ *   <li>specific yield: kWh per kW installed</li>
+ *   <li>capacity factor: kWh over kW times the hours elapsed in the period</li>
+ *   <li>performance ratio: kWh over the output the hourly TMY simulation
+ *       expects for the installation's location over the same period</li>
+ * </ul>
+ * The simulated output is kept per installation, so a KPI request only runs
+ * the 8760-hour simulation the first time, or after the installation's
+ * location or roof changes or its counters are rebuilt.
+ */
+@Service
+public class InstallationPerformanceService {
+
+    private record ExpectedYield(String zipCode, String roofType, double[] monthlyKwhPerKw) {
+    }
+
+    @Autowired
+    private InstallationPerformanceRepository performanceRepository;
+
+    @Autowired
+    private EnergyDataRepository energyDataRepository;
+
+    @Autowired
+    private HourlySolarSimulator simulator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.monitoring.performance.expected-yield-cache-size}")
+    private long expectedYieldCacheSize;
+
+    private TransactionTemplate newTransaction;
+
+    private Cache<Long, ExpectedYield> expectedYields;
+
+    @PostConstruct
+    void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        expectedYields = Caffeine.newBuilder()
+                .maximumSize(expectedYieldCacheSize)
+                .build();
+    }
+
+    /**
+     * Adds stored readings to their installations' counters. Must run in the
+     * transaction that stores the readings.
+     */
+    @Transactional
+    public void record(List<EnergyData> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        Map<Long, List<EnergyData>> byInstallation = readings.stream()
+                .collect(Collectors.groupingBy(data -> data.getInstallation().getId()));
+
+        Map<Long, InstallationPerformance> counters = lock(byInstallation.keySet());
+        if (counters.size() < byInstallation.size()) {
+            Set<Long> missing = byInstallation.keySet().stream()
+                    .filter(id -> !counters.containsKey(id))
+                    .collect(Collectors.toSet());
+            for (Long installationId : missing) {
+                createIfMissing(installationId);
+            }
+            counters.putAll(lock(missing));
+        }
+
+        byInstallation.forEach((installationId, rows) -> {
+            InstallationPerformance performance = counters.get(installationId);
+            rows.stream()
+                    .sorted((a, b) -> a.getTimestamp().compareTo(b.getTimestamp()))
+                    .forEach(data -> add(performance, data.getTimestamp(), data.getEnergyProduced()));
+        });
+    }
+
+    /**
+     * Recomputes an installation's counters from its stored readings, summed
+     * per hour in the database.
+     */
+    @Transactional
+    public InstallationPerformance rebuild(Long installationId) {
+        createIfMissing(installationId);
+        InstallationPerformance performance = lock(List.of(installationId)).get(installationId);
+        InstallationPerformance rebuilt = new InstallationPerformance();
+        rebuilt.setInstallationId(installationId);
+
+        for (Object[] hour : energyDataRepository.sumHourlyProduction(installationId)) {
+            LocalDateTime hourStart = LocalDateTime.of(((Number) hour[0]).intValue(), ((Number) hour[1]).intValue(),
+                    ((Number) hour[2]).intValue(), ((Number) hour[3]).intValue(), 0);
+            add(rebuilt, hourStart, ((Number) hour[4]).doubleValue());
+            if (rebuilt.getFirstReadingAt().equals(hourStart)) {
+                rebuilt.setFirstReadingAt((LocalDateTime) hour[5]);
+            }
+            rebuilt.setLastReadingAt((LocalDateTime) hour[6]);
+        }
+
+        rebuilt.setRebuiltAt(LocalDateTime.now());
+        copy(rebuilt, performance);
+        expectedYields.invalidate(installationId);
+        return performance;
+    }
+
+    public Map<String, Object> kpis(Installation installation, InstallationPerformance performance) {
+        LocalDateTime now = LocalDateTime.now();
+        double capacityKw = capacityKw(installation);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("installationId", installation.getId());
+        response.put("capacityKw", capacityKw > 0 ? capacityKw : null);
+        if (performance == null) {
+            response.put("lifetime", null);
+            response.put("yearToDate", null);
+            response.put("monthToDate", null);
+            return response;
+        }
+
+        // Expected output per kWp by month for this location and roof
+        Address address = installation.getSolarPlan() != null ? installation.getSolarPlan().getAddress() : null;
+        String zipCode = address != null ? address.getZipCode()
+                : installation.getCommunity() != null ? installation.getCommunity().getZipCode() : null;
+        double[] expectedMonthly = expectedMonthly(installation.getId(), zipCode,
+                address != null ? address.getRoofType() : null);
+
+        LocalDateTime lifetimeStart = installation.getGenerationStartDate() != null
+                ? installation.getGenerationStartDate() : performance.getFirstReadingAt();
+        LocalDateTime yearStart = now.toLocalDate().withDayOfYear(1).atStartOfDay();
+        LocalDateTime monthStart = now.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        boolean currentYear = performance.getYtdYear() == now.getYear();
+        boolean currentMonth = performance.getMtdMonth() == now.getYear() * 100 + now.getMonthValue();
+
+        response.put("lifetime", period(performance.getLifetimeKwh(), performance.getLifetimeOperatingHours(),
+                lifetimeStart, now, capacityKw, expectedMonthly));
+        response.put("yearToDate", period(currentYear ? performance.getYtdKwh() : 0.0,
+                currentYear ? performance.getYtdOperatingHours() : 0L,
+                later(yearStart, lifetimeStart), now, capacityKw, expectedMonthly));
+        response.put("monthToDate", period(currentMonth ? performance.getMtdKwh() : 0.0,
+                currentMonth ? performance.getMtdOperatingHours() : 0L,
+                later(monthStart, lifetimeStart), now, capacityKw, expectedMonthly));
+        response.put("peakKw", performance.getPeakKwh());
+        response.put("peakHourStart", performance.getPeakHourStart());
+        response.put("firstReadingAt", performance.getFirstReadingAt());
+        response.put("lastReadingAt", performance.getLastReadingAt());
+        response.put("rebuiltAt", performance.getRebuiltAt());
+        return response;
+    }
+
+    private double[] expectedMonthly(Long installationId, String zipCode, String roofType) {
+        ExpectedYield cached = expectedYields.getIfPresent(installationId);
+        if (cached == null || !Objects.equals(cached.zipCode(), zipCode)
+                || !Objects.equals(cached.roofType(), roofType)) {
+            double[] monthly = new double[12];
+            simulator.specificYield(zipCode, roofType, monthly);
+            cached = new ExpectedYield(zipCode, roofType, monthly);
+            expectedYields.put(installationId, cached);
+        }
+        return cached.monthlyKwhPerKw();
+    }
+
+    private Map<String, Object> period(double kwh, long operatingHours, LocalDateTime start, LocalDateTime end,
+            double capacityKw, double[] expectedMonthly) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("energyKwh", kwh);
+        result.put("operatingHours", operatingHours);
+        result.put("since", start);
+        if (capacityKw <= 0 || start == null || !start.isBefore(end)) {
+            result.put("specificYield", null);
+            result.put("capacityFactor", null);
+            result.put("performanceRatio", null);
+            return result;
+        }
+        double hours = ChronoUnit.SECONDS.between(start, end) / 3600.0;
+        double expected = capacityKw * expectedKwhPerKw(start, end, expectedMonthly);
+        result.put("specificYield", kwh / capacityKw);
+        result.put("capacityFactor", kwh / (capacityKw * hours));
+        result.put("performanceRatio", expected > 0 ? kwh / expected : null);
+        return result;
+    }
+
+    /**
+     * Expected output per kWp between two times, prorating each month's
+     * simulated output by the share of the month inside the range.
+     */
+    static double expectedKwhPerKw(LocalDateTime start, LocalDateTime end, double[] expectedMonthly) {
+        double expected = 0.0;
+        LocalDateTime cursor = start;
+        while (cursor.isBefore(end)) {
+            LocalDateTime monthStart = cursor.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            LocalDateTime nextMonth = monthStart.plusMonths(1);
+            LocalDateTime until = nextMonth.isBefore(end) ? nextMonth : end;
+            double share = (double) ChronoUnit.SECONDS.between(cursor, until)
+                    / ChronoUnit.SECONDS.between(monthStart, nextMonth);
+            expected += expectedMonthly[cursor.getMonthValue() - 1] * share;
+            cursor = until;
+        }
+        return expected;
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    private static double capacityKw(Installation installation) {
+        if (installation.getTotalCapacityKw() != null) {
+            return installation.getTotalCapacityKw();
+        }
+        if (installation.getSolarPlan() != null && installation.getSolarPlan().getSystemSizeKw() != null) {
+            return installation.getSolarPlan().getSystemSizeKw();
+        }
+        return 0.0;
+    }
+
+    static void add(InstallationPerformance performance, LocalDateTime timestamp, double kwh) {
+        int year = timestamp.getYear();
+        int month = year * 100 + timestamp.getMonthValue();
+        long hour = Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), 3600L);
+
+        performance.setLifetimeKwh(performance.getLifetimeKwh() + kwh);
+        if (year > performance.getYtdYear()) {
+            performance.setYtdYear(year);
+            performance.setYtdKwh(0.0);
+            performance.setYtdOperatingHours(0L);
+        }
+        if (year == performance.getYtdYear()) {
+            performance.setYtdKwh(performance.getYtdKwh() + kwh);
+        }
+        if (month > performance.getMtdMonth()) {
+            performance.setMtdMonth(month);
+            performance.setMtdKwh(0.0);
+            performance.setMtdOperatingHours(0L);
+        }
+        if (month == performance.getMtdMonth()) {
+            performance.setMtdKwh(performance.getMtdKwh() + kwh);
+        }
+
+        if (performance.getFirstReadingAt() == null || timestamp.isBefore(performance.getFirstReadingAt())) {
+            performance.setFirstReadingAt(timestamp);
+        }
+        if (performance.getLastReadingAt() == null || timestamp.isAfter(performance.getLastReadingAt())) {
+            performance.setLastReadingAt(timestamp);
+        }
+
+        if (hour < performance.getCurrentHour()) {
+            return;
+        }
+        boolean producing = kwh > 0;
+        if (hour > performance.getCurrentHour()) {
+            performance.setCurrentHour(hour);
+            performance.setCurrentHourKwh(kwh);
+        } else {
+            producing = producing && performance.getCurrentHourKwh() <= 0;
+            performance.setCurrentHourKwh(performance.getCurrentHourKwh() + kwh);
+        }
+        if (producing) {
+            performance.setLifetimeOperatingHours(performance.getLifetimeOperatingHours() + 1);
+            if (year == performance.getYtdYear()) {
+                performance.setYtdOperatingHours(performance.getYtdOperatingHours() + 1);
+            }
+            if (month == performance.getMtdMonth()) {
+                performance.setMtdOperatingHours(performance.getMtdOperatingHours() + 1);
+            }
+        }
+        if (performance.getCurrentHourKwh() > performance.getPeakKwh()) {
+            performance.setPeakKwh(performance.getCurrentHourKwh());
+            performance.setPeakHourStart(timestamp.truncatedTo(ChronoUnit.HOURS));
+        }
+    }
+
+    private Map<Long, InstallationPerformance> lock(Collection<Long> installationIds) {
+        Map<Long, InstallationPerformance> counters = new HashMap<>();
+        for (InstallationPerformance performance
+                : performanceRepository.findByInstallationIdInOrderByInstallationId(installationIds)) {
+            counters.put(performance.getInstallationId(), performance);
+        }
+        return counters;
+    }
+
+    private void createIfMissing(Long installationId) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                if (!performanceRepository.existsById(installationId)) {
+                    InstallationPerformance performance = new InstallationPerformance();
+                    performance.setInstallationId(installationId);
+                    performanceRepository.saveAndFlush(performance);
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Created by a concurrent batch
+        }
+    }
+
+    private static void copy(InstallationPerformance from, InstallationPerformance to) {
+        to.setLifetimeKwh(from.getLifetimeKwh());
+        to.setLifetimeOperatingHours(from.getLifetimeOperatingHours());
+        to.setYtdYear(from.getYtdYear());
+        to.setYtdKwh(from.getYtdKwh());
+        to.setYtdOperatingHours(from.getYtdOperatingHours());
+        to.setMtdMonth(from.getMtdMonth());
+        to.setMtdKwh(from.getMtdKwh());
+        to.setMtdOperatingHours(from.getMtdOperatingHours());
+        to.setCurrentHour(from.getCurrentHour());
+        to.setCurrentHourKwh(from.getCurrentHourKwh());
+        to.setPeakKwh(from.getPeakKwh());
+        to.setPeakHourStart(from.getPeakHourStart());
+        to.setFirstReadingAt(from.getFirstReadingAt());
+        to.setLastReadingAt(from.getLastReadingAt());
+        to.setRebuiltAt(from.getRebuiltAt());
+    }
+}
@@ -0,0 +1,234 @@
+package com.communitysolar.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.communitysolar.util.SolarPlanCalculator;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Typical-meteorological-year (TMY) profiles, one per location grid cell. A
+ * cell is the first three digits of the Indian PIN code (the sorting district).
+ *
+ * Profiles are read from a single binary file that is memory-mapped once and
+ * shared by every request; readers use absolute gets only, so no copies or
+ * locks are needed. Layout (big-endian):
+ *
+ * <pre>
+ *   int  magic ('TMY1')
+ *   int  cellCount
+ *   int  cellKey[cellCount]        ascending
+ *   per cell, 8760 hours of:
+ *     short ghi                    global horizontal irradiance, W/m²
+ *     short ambientTemp            °C × 10
+ * </pre>
+ *
+ * Cells missing from the file (or every cell, if no file is configured) fall
+ * back to a synthetic profile calibrated to the historical planning assumption
+ * of 1500 kWh per kW per year.
+ */
+@Component
+public class IrradianceProfileStore {
+    private static final Logger logger = LoggerFactory.getLogger(IrradianceProfileStore.class);
+
+    public static final int MAGIC = 0x544D5931; // "TMY1"
+    public static final int HOURS = 8760;
+    public static final int BYTES_PER_HOUR = 4;
+    public static final int BYTES_PER_CELL = HOURS * BYTES_PER_HOUR;
+
+    // Latitude the synthetic profile is generated for (Tamil Nadu)
+    static final double SYNTHETIC_LATITUDE = 13.0;
+
+    // Monthly clearness and mean temperature, shaped after the south Indian monsoon
+    private static final double[] MONTHLY_CLEARNESS = { 0.70, 0.72, 0.72, 0.70, 0.66, 0.52, 0.45, 0.47, 0.52, 0.58, 0.62, 0.66 };
+    private static final double[] MONTHLY_TEMP = { 25, 27, 29, 31, 33, 32, 30, 30, 29, 28, 26, 25 };
+
+    /** Month (0-11) of each hour of a non-leap year. */
+    public static final byte[] HOUR_MONTH = new byte[HOURS];
+
+    private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    static {
+        int hour = 0;
+        for (int month = 0; month < 12; month++) {
+            for (int i = 0; i < DAYS_IN_MONTH[month] * 24; i++) {
+                HOUR_MONTH[hour++] = (byte) month;
+            }
+        }
+    }
+
+    @Value("${app.solar.tmy.file}")
+    private String profileFile;
+
+    private int[] cellKeys = new int[0];
+
+    private ByteBuffer profiles;
+
+    private int dataStart;
+
+    private ByteBuffer synthetic;
+
+    private String dataVersion = "synthetic";
+
+    /**
+     * Opens a profile file outside the application context, for offline tools.
+     * An empty path gives a store with only the synthetic profile.
+     */
+    public static IrradianceProfileStore open(String file) throws IOException {
+        IrradianceProfileStore store = new IrradianceProfileStore();
+        store.profileFile = file;
+        store.init();
+        return store;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        synthetic = buildSyntheticProfile();
+        if (!StringUtils.hasText(profileFile)) {
+            logger.info("No TMY profile file configured; using the synthetic profile for every location");
+            return;
+        }
+
+        Path path = Path.of(profileFile);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.BIG_ENDIAN);
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IOException("Not a TMY profile file: " + path);
+            }
+            int cellCount = mapped.getInt(4);
+            int[] keys = new int[cellCount];
+            for (int i = 0; i < cellCount; i++) {
+                keys[i] = mapped.getInt(8 + i * 4);
+            }
+            int start = 8 + cellCount * 4;
+            if (channel.size() < start + (long) cellCount * BYTES_PER_CELL) {
+                throw new IOException("Truncated TMY profile file: " + path);
+            }
+            cellKeys = keys;
+            dataStart = start;
+            profiles = mapped;
+            dataVersion = "tmy-" + SolarPlanCalculator.sha256Hex(mapped).substring(0, 16);
+        }
+        logger.info("Mapped {} TMY profiles from {} (version {})", cellKeys.length, path, dataVersion);
+    }
+
+    /**
+     * @return "synthetic", or a digest of the profile file, so results can be
+     *         tied to the data they were computed from
+     */
+    public String getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * @return the buffer holding the profile for the given PIN code; read it
+     *         from {@link #offset(ByteBuffer, String)} with absolute gets only
+     */
+    public ByteBuffer buffer(String zipCode) {
+        return cellIndex(zipCode) >= 0 ? profiles : synthetic;
+    }
+
+    public int offset(ByteBuffer buffer, String zipCode) {
+        return buffer == synthetic ? 0 : dataStart + cellIndex(zipCode) * BYTES_PER_CELL;
+    }
+
+    public boolean hasProfile(String zipCode) {
+        return cellIndex(zipCode) >= 0;
+    }
+
+    private int cellIndex(String zipCode) {
+        int key = cellKey(zipCode);
+        return key < 0 ? -1 : Math.max(-1, Arrays.binarySearch(cellKeys, key));
+    }
+
+    /**
+     * @return the grid cell for a PIN code, or -1 if it doesn't start with three digits
+     */
+    public static int cellKey(String zipCode) {
+        if (zipCode == null) {
+            return -1;
+        }
+        String trimmed = zipCode.trim();
+        if (trimmed.length() < 3) {
+            return -1;
+        }
+        int key = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = trimmed.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+
+    /**
+     * Writes profiles in the format read by this store. Keys must be ascending.
+     */
+    public static void write(Path path, int[] cellKeys, short[][] ghi, short[][] ambientTempTenths) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(8 + cellKeys.length * 4 + cellKeys.length * BYTES_PER_CELL);
+        out.putInt(MAGIC).putInt(cellKeys.length);
+        for (int key : cellKeys) {
+            out.putInt(key);
+        }
+        for (int cell = 0; cell < cellKeys.length; cell++) {
+            for (int hour = 0; hour < HOURS; hour++) {
+                out.putShort(ghi[cell][hour]).putShort(ambientTempTenths[cell][hour]);
+            }
+        }
+        Files.write(path, out.array());
+    }
+
+    /**
+     * Clear-sky irradiance (Haurwitz) for the synthetic latitude, derated by
+     * monthly clearness, then scaled so a reference system reproduces the
+     * 1500 kWh/kW/year baseline.
+     */
+    private static ByteBuffer buildSyntheticProfile() {
+        double[] ghi = new double[HOURS];
+        short[] temp = new short[HOURS];
+        double latitude = Math.toRadians(SYNTHETIC_LATITUDE);
+        for (int hour = 0; hour < HOURS; hour++) {
+            int day = hour / 24;
+            int month = HOUR_MONTH[hour];
+            double declination = Math.toRadians(23.45 * Math.sin(2 * Math.PI * (284 + day + 1) / 365.0));
+            double hourAngle = Math.toRadians(15.0 * (hour % 24 + 0.5 - 12.0));
+            double cosZenith = Math.sin(latitude) * Math.sin(declination)
+                    + Math.cos(latitude) * Math.cos(declination) * Math.cos(hourAngle);
+            if (cosZenith > 0) {
+                ghi[hour] = 1098.0 * cosZenith * Math.exp(-0.057 / cosZenith) * MONTHLY_CLEARNESS[month];
+            }
+            double diurnal = 4.0 * Math.sin(2 * Math.PI * (hour % 24 - 9) / 24.0);
+            temp[hour] = (short) Math.round((MONTHLY_TEMP[month] + diurnal) * 10);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES_PER_CELL);
+        double scale = 1.0;
+        // Output is close to linear in irradiance; a few rounds absorb the temperature and clipping terms
+        for (int round = 0; round < 4; round++) {
+            for (int hour = 0; hour < HOURS; hour++) {
+                buffer.putShort(hour * BYTES_PER_HOUR, (short) Math.round(ghi[hour] * scale));
+                buffer.putShort(hour * BYTES_PER_HOUR + 2, temp[hour]);
+            }
+            double yield = HourlySolarSimulator.simulate(buffer, 0, 1.0, null);
+            scale *= SolarPlanCalculator.BASELINE_KWH_PER_KW / yield;
+        }
+        return buffer.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,304 @@
+package com.communitysolar.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.communitysolar.dto.community.MemberEnrollmentRequest;
+import com.communitysolar.model.Community;
+import com.communitysolar.model.CommunityMember;
+import com.communitysolar.model.ERole;
+import com.communitysolar.model.Role;
+import com.communitysolar.model.User;
+import com.communitysolar.repository.CommunityMemberRepository;
+import com.communitysolar.repository.RoleRepository;
+import com.communitysolar.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Enrolls a whole member list into a community in one pass. Rows are read from
+ * the request stream and processed in chunks so that user lookups and inserts
+ * are issued per chunk rather than per member.
+ */
+@Service
+public class MemberEnrollmentService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    // Bulk-created users have no usable password until they go through the reset flow
+    // (PasswordResetService); this value is never produced by the BCrypt encoder so it
+    // can never match.
+    static final String UNUSABLE_PASSWORD = "!";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommunityMembershipService communityMembershipService;
+
+    @Autowired
+    private CommunityMemberRepository communityMemberRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional
+    public Map<String, Object> enrollFromCsv(Community community, InputStream input) throws IOException {
+        Enrollment enrollment = new Enrollment(community);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        String header = reader.readLine();
+        if (header == null) {
+            return enrollment.finish();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> headerFields = parseCsvLine(header);
+        for (int i = 0; i < headerFields.size(); i++) {
+            columns.put(headerFields.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("email")) {
+            throw new IllegalArgumentException("CSV header must contain an 'email' column");
+        }
+
+        String line;
+        int lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = parseCsvLine(line);
+            MemberEnrollmentRequest row = new MemberEnrollmentRequest();
+            row.setUsername(field(fields, columns, "username"));
+            row.setEmail(field(fields, columns, "email"));
+            row.setFirstName(field(fields, columns, "firstname"));
+            row.setLastName(field(fields, columns, "lastname"));
+            row.setPhoneNumber(field(fields, columns, "phonenumber"));
+            enrollment.add(row, lineNumber);
+        }
+        return enrollment.finish();
+    }
+
+    @Transactional
+    public Map<String, Object> enrollFromJson(Community community, InputStream input) throws IOException {
+        Enrollment enrollment = new Enrollment(community);
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("JSON body must be an array of members");
+            }
+            int index = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                enrollment.add(parser.readValueAs(MemberEnrollmentRequest.class), ++index);
+            }
+        }
+        return enrollment.finish();
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    /**
+     * State for a single enrollment run: the community's existing member ids are
+     * loaded once up front and every enrolled user is added to the same set, so
+     * duplicates within the upload are skipped as well.
+     */
+    private class Enrollment {
+        private final Community community;
+        private final Role userRole;
+        private final Set<Long> memberUserIds;
+        private final List<MemberEnrollmentRequest> pending = new ArrayList<>(CHUNK_SIZE);
+        private final List<Integer> pendingRows = new ArrayList<>(CHUNK_SIZE);
+        private final List<Map<String, Object>> rejected = new ArrayList<>();
+
+        private int processed;
+        private int usersCreated;
+        private int membersAdded;
+        private int alreadyMembers;
+        private int rejectedCount;
+
+        Enrollment(Community community) {
+            this.community = community;
+            this.userRole = roleRepository.findByName(ERole.ROLE_USER)
+                    .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
+            this.memberUserIds = new HashSet<>(communityMemberRepository.findUserIdsByCommunity(community));
+        }
+
+        void add(MemberEnrollmentRequest row, int rowNumber) {
+            processed++;
+            if (row.getEmail() == null || row.getEmail().isBlank()) {
+                reject(rowNumber, "Email is required");
+                return;
+            }
+            // Emails are compared case-insensitively, within the upload and against existing users
+            row.setEmail(row.getEmail().trim().toLowerCase(Locale.ROOT));
+            pending.add(row);
+            pendingRows.add(rowNumber);
+            if (pending.size() >= CHUNK_SIZE) {
+                flushChunk();
+            }
+        }
+
+        Map<String, Object> finish() {
+            flushChunk();
+            if (membersAdded > 0) {
+                double addedWeight = membersAdded * CommunityMember.DEFAULT_WEIGHT;
+                communityMembershipService.adjustTotals(community.getId(), membersAdded, addedWeight, addedWeight);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("communityId", community.getId());
+            response.put("processed", processed);
+            response.put("usersCreated", usersCreated);
+            response.put("membersAdded", membersAdded);
+            response.put("alreadyMembers", alreadyMembers);
+            response.put("rejected", rejectedCount);
+            response.put("rejections", rejected);
+            return response;
+        }
+
+        private void flushChunk() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            Set<String> emails = pending.stream().map(MemberEnrollmentRequest::getEmail).collect(Collectors.toSet());
+            Map<String, User> usersByEmail = userRepository.findByEmailIn(emails).stream()
+                    .collect(Collectors.toMap(User::getEmail, Function.identity()));
+
+            Set<String> newUsernames = new HashSet<>();
+            for (MemberEnrollmentRequest row : pending) {
+                if (!usersByEmail.containsKey(row.getEmail()) && row.getUsername() != null) {
+                    newUsernames.add(row.getUsername());
+                }
+            }
+            Set<String> takenUsernames = newUsernames.isEmpty()
+                    ? new HashSet<>()
+                    : new HashSet<>(userRepository.findExistingUsernames(newUsernames));
+
+            List<User> newUsers = new ArrayList<>();
+            List<User> chunkUsers = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                MemberEnrollmentRequest row = pending.get(i);
+                User user = usersByEmail.get(row.getEmail());
+                if (user == null) {
+                    if (row.getUsername() == null || row.getUsername().isBlank()) {
+                        reject(pendingRows.get(i), "Username is required for new users");
+                        chunkUsers.add(null);
+                        continue;
+                    }
+                    if (!takenUsernames.add(row.getUsername())) {
+                        reject(pendingRows.get(i), "Username is already taken: " + row.getUsername());
+                        chunkUsers.add(null);
+                        continue;
+                    }
+                    user = new User(row.getUsername(), row.getEmail(), UNUSABLE_PASSWORD);
+                    user.setFirstName(row.getFirstName());
+                    user.setLastName(row.getLastName());
+                    user.setPhoneNumber(row.getPhoneNumber());
+                    user.setRoles(new HashSet<>(Set.of(userRole)));
+                    newUsers.add(user);
+                    usersByEmail.put(row.getEmail(), user);
+                }
+                chunkUsers.add(user);
+            }
+
+            userRepository.saveAll(newUsers);
+            usersCreated += newUsers.size();
+
+            List<CommunityMember> newMembers = new ArrayList<>();
+            for (User user : chunkUsers) {
+                if (user == null) {
+                    continue;
+                }
+                if (!memberUserIds.add(user.getId())) {
+                    alreadyMembers++;
+                    continue;
+                }
+                CommunityMember member = new CommunityMember();
+                member.setCommunity(community);
+                member.setUser(user);
+                newMembers.add(member);
+            }
+
+            communityMemberRepository.saveAll(newMembers);
+            membersAdded += newMembers.size();
+
+            entityManager.flush();
+            entityManager.clear();
+            pending.clear();
+            pendingRows.clear();
+        }
+
+        private void reject(int rowNumber, String reason) {
+            rejectedCount++;
+            if (rejected.size() < MAX_REPORTED_REJECTIONS) {
+                Map<String, Object> rejection = new HashMap<>();
+                rejection.put("row", rowNumber);
+                rejection.put("reason", reason);
+                rejected.add(rejection);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.communitysolar.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.communitysolar.dto.monitoring.InstallationAlertResponse;
+import com.communitysolar.dto.monitoring.InstallationUpdateResponse;
+import com.communitysolar.dto.monitoring.NetMeteringSettlementResponse;
+import com.communitysolar.dto.monitoring.SolarUsageResponse;
+import com.communitysolar.model.Installation;
+import com.communitysolar.model.InstallationUpdate;
+import com.communitysolar.model.SolarUsage;
+import com.communitysolar.model.User;
+import com.communitysolar.repository.InstallationAlertRepository;
+import com.communitysolar.repository.InstallationPerformanceRepository;
+import com.communitysolar.repository.InstallationRepository;
+import com.communitysolar.repository.InstallationUpdateRepository;
+import com.communitysolar.repository.NetMeteringSettlementRepository;
+import com.communitysolar.repository.SolarUsageRepository;
+import com.communitysolar.util.TNEBTariffCalculator;
+
+/**
+ * Reads behind the monitoring GET endpoints. Each method is one read-only
+ * transaction, so with a replica configured it is served there (see
+ * {@code ReadWriteRoutingDataSource}). Methods return empty when the
+ * installation does not exist.
+ */
+@Service
+public class MonitoringQueryService {
+
+    @Autowired
+    private InstallationRepository installationRepository;
+
+    @Autowired
+    private InstallationUpdateRepository updateRepository;
+
+    @Autowired
+    private InstallationAlertRepository alertRepository;
+
+    @Autowired
+    private InstallationPerformanceRepository performanceRepository;
+
+    @Autowired
+    private InstallationPerformanceService performanceService;
+
+    @Autowired
+    private NetMeteringSettlementRepository settlementRepository;
+
+    @Autowired
+    private SolarUsageRepository solarUsageRepository;
+
+    /**
+     * @param cursor a position from {@link #decodeCursor}, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> progress(Long installationId, String[] cursor, int limit) {
+        Optional<Installation> installationOptional = installationRepository.findById(installationId);
+        if (!installationOptional.isPresent()) {
+            return Optional.empty();
+        }
+        Installation installation = installationOptional.get();
+
+        // Fetch one extra row to know whether another page follows
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<InstallationUpdateResponse> timeline = cursor == null
+                ? updateRepository.findTimeline(installationId, page)
+                : updateRepository.findTimelineBefore(installationId,
+                        LocalDateTime.parse(cursor[0]), Long.parseLong(cursor[1]), page);
+
+        String nextCursor = null;
+        if (timeline.size() > limit) {
+            timeline = timeline.subList(0, limit);
+            InstallationUpdateResponse last = timeline.get(limit - 1);
+            nextCursor = encodeCursor(last.getUpdateTime(), last.getId());
+        }
+
+        InstallationUpdate latest = updateRepository.findTopByInstallationOrderByUpdateTimeDesc(installation);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("currentProgress", installation.getCurrentProgress());
+        response.put("isGenerating", installation.isGenerating());
+        response.put("latestUpdate", latest != null ? new InstallationUpdateResponse(latest.getId(),
+                latest.getProgressPercentage(), latest.getUpdateNotes(), latest.getUpdateTime(), latest.isCompleted()) : null);
+        response.put("updates", timeline);
+        response.put("nextCursor", nextCursor);
+        return Optional.of(response);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<List<InstallationAlertResponse>> alerts(Long installationId, int limit) {
+        if (!installationRepository.existsById(installationId)) {
+            return Optional.empty();
+        }
+        return Optional.of(alertRepository.findByInstallationIdOrderByIdDesc(installationId, PageRequest.of(0, limit))
+                .stream().map(InstallationAlertResponse::from).toList());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> performance(Long installationId) {
+        return installationRepository.findById(installationId)
+                .map(installation -> performanceService.kpis(installation,
+                        performanceRepository.findById(installationId).orElse(null)));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<List<NetMeteringSettlementResponse>> settlements(Long installationId, int limit) {
+        if (!installationRepository.existsById(installationId)) {
+            return Optional.empty();
+        }
+        return Optional.of(settlementRepository.findByInstallationIdOrderByBillingMonthDesc(installationId,
+                PageRequest.of(0, limit)).stream().map(NetMeteringSettlementResponse::from).toList());
+    }
+
+    /**
+     * @param period daily, weekly, monthly or yearly; anything else counts as monthly
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> usage(Long userId, String period) {
+        LocalDateTime start;
+        LocalDateTime end = LocalDateTime.now();
+
+        switch (period != null ? period : "monthly") {
+            case "daily":
+                start = end.minusDays(1);
+                break;
+            case "weekly":
+                start = end.minusWeeks(1);
+                break;
+            case "yearly":
+                start = end.minusYears(1);
+                break;
+            case "monthly":
+            default:
+                start = end.minusMonths(1);
+        }
+
+        User user = new User();
+        user.setId(userId);
+
+        List<SolarUsage> usageData = solarUsageRepository.findByUserAndReadingTimestampBetween(user, start, end);
+
+        double totalSolarUsed = usageData.stream()
+            .mapToDouble(SolarUsage::getSolarEnergyUsed)
+            .sum();
+
+        double totalGridUsed = usageData.stream()
+            .mapToDouble(SolarUsage::getGridEnergyUsed)
+            .sum();
+
+        double billWithoutSolar = TNEBTariffCalculator.calculateBill(totalSolarUsed + totalGridUsed);
+        double actualBill = TNEBTariffCalculator.calculateBill(totalGridUsed);
+        double savings = billWithoutSolar - actualBill;
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("period", period);
+        response.put("solarUsage", totalSolarUsed);
+        response.put("gridUsage", totalGridUsed);
+        response.put("billWithoutSolar", billWithoutSolar);
+        response.put("actualBill", actualBill);
+        response.put("savings", savings);
+        response.put("usageData", usageData.stream().map(SolarUsageResponse::from).toList());
+        return response;
+    }
+
+    // Cursors are the (updateTime, id) of the last row returned, base64url-encoded
+    private static String encodeCursor(LocalDateTime updateTime, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((updateTime + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the (updateTime, id) position, or null if the cursor is malformed
+     */
+    public static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                return null;
+            }
+            LocalDateTime.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (IllegalArgumentException | DateTimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.communitysolar.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.communitysolar.model.Installation;
+import com.communitysolar.model.NetMeteringSettlement;
+import com.communitysolar.model.SettlementRun;
+import com.communitysolar.repository.NetMeteringSettlementRepository;
+import com.communitysolar.repository.SettlementRunRepository;
+import com.communitysolar.util.TNEBTariffCalculator;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Monthly net-metering settlement over the grid import/export columns of
+ * {@code EnergyData}.
+ *
+ * Per installation, the month's imports are offset by its exports plus any
+ * surplus banked from the previous month. A net import is charged through the
+ * TNEB domestic slabs; a net export is banked into the next month, except in
+ * the last month of the banking year, when it is paid out at the export rate.
+ *
+ * The run keeps memory flat however many rows there are: installation ids are
+ * read through one forward-only cursor, each installation's interval rows
+ * through another (an index range scan on installation and time within the
+ * month's partition), and only
+ * running sums are kept. Both run on stateless sessions, so nothing builds up
+ * in a persistence context. Settlements are inserted in JDBC batches and
+ * committed every batch; a rerun for the same month first deletes what an
+ * earlier run wrote, so an interrupted run can simply be started again.
+ *
+ * A month's banked-in surplus is the previous month's banked-out, so
+ * resettling a month also resettles each following month that was already
+ * settled, up to the last completed one.
+ *
+ * Each run is recorded as a {@link SettlementRun}. Its row holds the unique
+ * {@code active} flag while it runs, which keeps runs exclusive across
+ * instances; the row's heartbeat is advanced with every committed batch, and
+ * a run that stops advancing it for {@code app.settlement.stale-run-minutes}
+ * is taken to have died and releases the flag to the next run.
+ */
+@Service
+public class NetMeteringSettlementJob {
+    private static final Logger logger = LoggerFactory.getLogger(NetMeteringSettlementJob.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ReadingPartitions partitions;
+
+    @Autowired
+    private SettlementRunRepository runRepository;
+
+    @Autowired
+    private NetMeteringSettlementRepository settlementRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.settlement.export-credit-per-kwh}")
+    private double exportCreditPerKwh;
+
+    // Month (1-12) whose settlement pays out banked surplus
+    @Value("${app.settlement.banking-year-end-month}")
+    private int bankingYearEndMonth;
+
+    @Value("${app.settlement.batch-size}")
+    private int batchSize;
+
+    @Value("${app.settlement.fetch-size}")
+    private int fetchSize;
+
+    @Value("${app.settlement.stale-run-minutes}")
+    private long staleRunMinutes;
+
+    private TransactionTemplate newTransaction;
+
+    // Runs are exclusive, so one thread is all they need
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "settlement-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // An interrupted run keeps its flag until it goes stale; rerunning it is safe
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${app.settlement.cron}")
+    public void settlePreviousMonth() {
+        YearMonth month = YearMonth.now().minusMonths(1);
+        SettlementRun run = claim(month);
+        if (run == null) {
+            logger.warn("Not settling {}: another settlement run is in progress", month);
+            return;
+        }
+        execute(run);
+    }
+
+    /**
+     * Records a run for the month and starts it in the background.
+     *
+     * @return the run, or empty if another run is in progress
+     */
+    public Optional<SettlementRun> start(YearMonth month) {
+        SettlementRun run = claim(month);
+        if (run == null) {
+            return Optional.empty();
+        }
+        executor.execute(() -> execute(run));
+        return Optional.of(run);
+    }
+
+    /**
+     * @return the new running row, or null if another run holds the active flag
+     */
+    private SettlementRun claim(YearMonth month) {
+        LocalDateTime now = LocalDateTime.now();
+        int released = newTransaction.execute(status -> runRepository.releaseStale(now.minusMinutes(staleRunMinutes), now,
+                SettlementRun.Status.FAILED));
+        if (released > 0) {
+            logger.warn("Released a settlement run that made no progress for {} minutes", staleRunMinutes);
+        }
+
+        SettlementRun run = new SettlementRun();
+        run.setBillingMonth(month.atDay(1));
+        run.setStatus(SettlementRun.Status.RUNNING);
+        run.setActive(Boolean.TRUE);
+        run.setRequestedAt(now);
+        run.setHeartbeatAt(now);
+        run.setInstallations(0L);
+        run.setSettled(0L);
+        run.setIntervals(0L);
+        run.setTotalAmountDue(0.0);
+        try {
+            return newTransaction.execute(status -> runRepository.saveAndFlush(run));
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    // Settles the run's month and every later settled month, then records the outcome
+    private void execute(SettlementRun run) {
+        long startedAt = System.nanoTime();
+        YearMonth month = YearMonth.from(run.getBillingMonth());
+        try {
+            while (true) {
+                settleMonth(run, month);
+                run.setThroughMonth(month.atDay(1));
+                YearMonth next = month.plusMonths(1);
+                if (!next.isBefore(YearMonth.now()) || !settlementRepository.existsByBillingMonth(next.atDay(1))) {
+                    break;
+                }
+                logger.info("Resettling {} to carry in the surplus banked in {}", next, month);
+                month = next;
+            }
+            run.setStatus(SettlementRun.Status.SUCCEEDED);
+        } catch (RuntimeException e) {
+            logger.error("Settlement run {} failed while settling {}", run.getId(), month, e);
+            run.setStatus(SettlementRun.Status.FAILED);
+            String error = month + ": " + e.getMessage();
+            run.setError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        }
+        run.setElapsedMs((System.nanoTime() - startedAt) / 1_000_000);
+        run.setFinishedAt(LocalDateTime.now());
+        run.setHeartbeatAt(run.getFinishedAt());
+        run.setActive(null);
+        newTransaction.executeWithoutResult(status -> runRepository.save(run));
+        logger.info("Settlement run {} {}: {} of {} installations settled from {} through {} in {} ms", run.getId(),
+                run.getStatus(), run.getSettled(), run.getInstallations(), run.getBillingMonth(),
+                run.getThroughMonth(), run.getElapsedMs());
+    }
+
+    // Replaces the month's settlements and adds its totals to the run's
+    private void settleMonth(SettlementRun run, YearMonth month) {
+        LocalDate billingMonth = month.atDay(1);
+        LocalDateTime from = billingMonth.atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        LocalDate previousMonth = month.minusMonths(1).atDay(1);
+        boolean payOutSurplus = month.getMonthValue() == bankingYearEndMonth;
+
+        // Only the billing month's partition is read
+        String readings = partitions.source(ReadingPartitions.Table.ENERGY_DATA, from, to.minusNanos(1));
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        long installations = 0;
+        long settled = 0;
+        long intervals = 0;
+        double totalDue = 0.0;
+
+        // The id cursor holds its own connection and transaction for the whole run,
+        // since committing would close it
+        try (StatelessSession reader = sessionFactory.openStatelessSession();
+                StatelessSession writer = sessionFactory.openStatelessSession()) {
+            writer.setJdbcBatchSize(batchSize);
+            reader.beginTransaction();
+            writer.beginTransaction();
+            int deleted = writer.createMutationQuery(
+                    "delete from NetMeteringSettlement s where s.billingMonth = :month")
+                    .setParameter("month", billingMonth)
+                    .executeUpdate();
+            if (deleted > 0) {
+                logger.info("Replacing {} existing settlements for {}", deleted, month);
+            }
+
+            try (ScrollableResults<Long> ids = reader
+                    .createSelectionQuery("select i.id from Installation i order by i.id", Long.class)
+                    .setFetchSize(fetchSize)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (ids.next()) {
+                    Long installationId = ids.get();
+                    installations++;
+                    NetMeteringSettlement settlement = settleInstallation(writer, readings, installationId, from, to,
+                            previousMonth, payOutSurplus);
+                    if (settlement != null) {
+                        settlement.setBillingMonth(billingMonth);
+                        writer.insert(settlement);
+                        settled++;
+                        intervals += settlement.getIntervals();
+                        totalDue += settlement.getAmountDue();
+                    }
+                    // Counted in installations rather than inserts so the heartbeat keeps
+                    // moving through stretches with nothing to settle
+                    if (installations % batchSize == 0) {
+                        commit(writer, run);
+                        writer.beginTransaction();
+                    }
+                }
+            }
+            commit(writer, run);
+            reader.getTransaction().commit();
+        }
+
+        logger.info("Settled {} of {} installations for {} from {} intervals", settled, installations, month, intervals);
+        run.setInstallations(run.getInstallations() + installations);
+        run.setSettled(run.getSettled() + settled);
+        run.setIntervals(run.getIntervals() + intervals);
+        run.setTotalAmountDue(run.getTotalAmountDue() + totalDue);
+    }
+
+    // Commits a batch together with the run's heartbeat
+    private void commit(StatelessSession writer, SettlementRun run) {
+        writer.createMutationQuery("update SettlementRun r set r.heartbeatAt = :now where r.id = :id")
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", run.getId())
+                .executeUpdate();
+        writer.getTransaction().commit();
+    }
+
+    /**
+     * @return the settlement, or null if the installation has nothing to settle
+     */
+    private NetMeteringSettlement settleInstallation(StatelessSession session, String readings, Long installationId,
+            LocalDateTime from, LocalDateTime to, LocalDate previousMonth, boolean payOutSurplus) {
+        long intervals = 0;
+        double imported = 0.0;
+        double exported = 0.0;
+        try (ScrollableResults<Object[]> rows = session
+                .createNativeQuery("select e.grid_imported, e.grid_exported from " + readings + " e "
+                        + "where e.installation_id = :installationId and e.timestamp >= :from and e.timestamp < :to",
+                        Object[].class)
+                .setParameter("installationId", installationId)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                Object[] row = rows.get();
+                intervals++;
+                // Missing values count as zero; negative ones are meter errors and are skipped
+                if (row[0] instanceof Double importedKwh && importedKwh > 0) {
+                    imported += importedKwh;
+                }
+                if (row[1] instanceof Double exportedKwh && exportedKwh > 0) {
+                    exported += exportedKwh;
+                }
+            }
+        }
+
+        Double bankedIn = session
+                .createSelectionQuery("select s.bankedOutKwh from NetMeteringSettlement s "
+                        + "where s.installation.id = :installationId and s.billingMonth = :month", Double.class)
+                .setParameter("installationId", installationId)
+                .setParameter("month", previousMonth)
+                .uniqueResult();
+        double banked = bankedIn != null ? bankedIn : 0.0;
+        if (intervals == 0 && banked == 0.0) {
+            return null;
+        }
+
+        Installation installation = new Installation();
+        installation.setId(installationId);
+
+        NetMeteringSettlement settlement = new NetMeteringSettlement();
+        settlement.setInstallation(installation);
+        settlement.setIntervals(intervals);
+        settlement.setImportedKwh(imported);
+        settlement.setExportedKwh(exported);
+        settlement.setBankedInKwh(banked);
+
+        double net = imported - exported - banked;
+        if (net > 0) {
+            settlement.setBilledKwh(net);
+            settlement.setImportCharge(TNEBTariffCalculator.calculateBill(net));
+        } else if (payOutSurplus) {
+            settlement.setCreditedKwh(-net);
+            settlement.setExportCredit(-net * exportCreditPerKwh);
+        } else {
+            settlement.setBankedOutKwh(-net);
+        }
+        settlement.setAmountDue(settlement.getImportCharge() - settlement.getExportCredit());
+        settlement.setSettledAt(LocalDateTime.now());
+        return settlement;
+    }
+}
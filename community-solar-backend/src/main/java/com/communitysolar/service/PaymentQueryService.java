@@ -0,0 +1,126 @@
+package com.communitysolar.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.communitysolar.dto.payment.PaymentResponse;
+import com.communitysolar.model.Community;
+import com.communitysolar.model.CommunityMember;
+import com.communitysolar.model.ElectricityUsage;
+import com.communitysolar.model.User;
+import com.communitysolar.repository.CommunityMemberRepository;
+import com.communitysolar.repository.CommunityRepository;
+import com.communitysolar.repository.ElectricityUsageRepository;
+import com.communitysolar.repository.PaymentRepository;
+
+/**
+ * Reads behind the payment listings and the quote split. Each method is one
+ * read-only transaction, so with a replica configured it is served there.
+ */
+@Service
+public class PaymentQueryService {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private CommunityRepository communityRepository;
+
+    @Autowired
+    private CommunityMemberRepository communityMemberRepository;
+
+    @Autowired
+    private ElectricityUsageRepository electricityUsageRepository;
+
+    @Transactional(readOnly = true)
+    public List<PaymentResponse> userPayments(Long userId) {
+        return paymentRepository.findResponsesByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PaymentResponse> communityPayments(Long communityId) {
+        if (!communityRepository.existsById(communityId)) {
+            throw new RuntimeException("Community not found");
+        }
+        return paymentRepository.findResponsesByCommunityId(communityId);
+    }
+
+    /**
+     * Splits a quote between the community's members by their average
+     * monthly usage.
+     *
+     * @return the breakdown, or null if the community has no members
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> quoteSplit(Long communityId, Double totalQuoteAmount) {
+        // Get the community
+        Community community = communityRepository.findById(communityId)
+                .orElseThrow(() -> new RuntimeException("Community not found"));
+
+        // Get all members of the community
+        List<CommunityMember> members = communityMemberRepository.findByCommunity(community);
+
+        if (members.isEmpty()) {
+            return null;
+        }
+
+        // Calculate the total electricity usage for all members
+        double totalUsage = 0.0;
+        Map<Long, Double> userUsage = new HashMap<>();
+
+        for (CommunityMember member : members) {
+            User user = member.getUser();
+            List<ElectricityUsage> usageData = electricityUsageRepository.findByUser(user);
+
+            // Calculate average usage for this user
+            double avgUsage = 0.0;
+            if (!usageData.isEmpty()) {
+                double sum = usageData.stream().mapToDouble(ElectricityUsage::getUnits).sum();
+                avgUsage = sum / usageData.size();
+            }
+
+            userUsage.put(user.getId(), avgUsage);
+            totalUsage += avgUsage;
+        }
+
+        // Calculate payment amount for each user based on their proportion of usage
+        List<Map<String, Object>> paymentBreakdown = new ArrayList<>();
+
+        for (CommunityMember member : members) {
+            User user = member.getUser();
+            double userAvgUsage = userUsage.get(user.getId());
+
+            // Skip users with no usage data
+            if (userAvgUsage <= 0) {
+                continue;
+            }
+
+            double proportion = userAvgUsage / totalUsage;
+            double paymentAmount = totalQuoteAmount * proportion;
+
+            Map<String, Object> userPayment = new HashMap<>();
+            userPayment.put("userId", user.getId());
+            userPayment.put("username", user.getUsername());
+            userPayment.put("avgUsage", userAvgUsage);
+            userPayment.put("proportion", proportion);
+            userPayment.put("fullPaymentAmount", paymentAmount);
+            userPayment.put("monthlyInstallment", paymentAmount / 12);
+
+            paymentBreakdown.add(userPayment);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("communityId", communityId);
+        response.put("totalQuoteAmount", totalQuoteAmount);
+        response.put("totalUsage", totalUsage);
+        response.put("paymentBreakdown", paymentBreakdown);
+
+        return response;
+    }
+}
@@ -0,0 +1,81 @@
+package com.communitysolar.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.communitysolar.dto.provider.ProviderProjectResponse;
+import com.communitysolar.repository.InstallationRepository;
+import com.communitysolar.util.CallerRunsLoader;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Paged project list for a provider's dashboard. Each page is one projection
+ * query plus a count, and is kept for a few seconds so a dashboard that polls
+ * or is open in several tabs doesn't repeat them. Progress updates evict the
+ * provider's pages straight away.
+ */
+@Service
+public class ProviderDashboardService {
+
+    private record PageKey(Long providerId, int page, int size) {
+    }
+
+    @Autowired
+    private InstallationRepository installationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.provider.dashboard.cache-ttl-seconds}")
+    private long ttlSeconds;
+
+    @Value("${app.provider.dashboard.cache-max-size}")
+    private long maxSize;
+
+    // Async only so a miss can be loaded outside the cache's locks (see CallerRunsLoader)
+    private AsyncCache<PageKey, Map<String, Object>> pages;
+
+    // Only misses open a transaction; read-only so they can run on the replica
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        pages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .buildAsync();
+    }
+
+    public Map<String, Object> getProjects(Long providerId, int page, int size) {
+        return CallerRunsLoader.get(pages, new PageKey(providerId, page, size), key -> readOnlyTransaction.execute(status -> {
+            long total = installationRepository.countProjectsByProvider(providerId);
+            List<ProviderProjectResponse> projects = (long) page * size < total
+                    ? installationRepository.findProjectsByProvider(providerId, page * size, size)
+                    : List.of();
+            Map<String, Object> response = new HashMap<>();
+            response.put("projects", projects);
+            response.put("page", page);
+            response.put("size", size);
+            response.put("totalProjects", total);
+            response.put("totalPages", (total + size - 1) / size);
+            return response;
+        }));
+    }
+
+    public void evict(Long providerId) {
+        pages.asMap().keySet().removeIf(key -> key.providerId().equals(providerId));
+    }
+}
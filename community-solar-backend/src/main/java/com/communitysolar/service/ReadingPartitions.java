@@ -0,0 +1,397 @@
+package com.communitysolar.service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Monthly partitions of the reading tables, {@code energy_data} and
+ * {@code solar_usage}. Each month lives in its own physical table, named
+ * like {@code energy_data_y2026m01}, so a retention cut drops whole tables
+ * and every index only covers one month.
+ *
+ * On PostgreSQL the month tables are native range partitions of the parent
+ * table, which routes inserts and prunes queries by itself. On H2 the parent
+ * is a {@code union all} view over the month tables, with an insert trigger
+ * ({@code H2ReadingRouter}) that routes each row to its month; queries that
+ * need pruning read from {@link #source} instead of the view.
+ *
+ * Month tables are created ahead of time by {@link #maintain()} and on demand
+ * by {@link #ensureMonths} before readings are stored. Inserting a reading
+ * for a month without a table fails on both databases.
+ */
+@Component
+public class ReadingPartitions {
+    private static final Logger logger = LoggerFactory.getLogger(ReadingPartitions.class);
+
+    /**
+     * A partitioned reading table. Columns are listed in the order used by
+     * the H2 view and trigger.
+     */
+    public enum Table {
+        ENERGY_DATA("energy_data", "timestamp",
+                List.of("id bigint not null", "installation_id bigint", "timestamp timestamp(6) not null",
+                        "energy_consumed float(53)", "energy_produced float(53)", "grid_exported float(53)",
+                        "grid_imported float(53)"),
+                List.of("foreign key (installation_id) references installations"),
+                Map.of("installation_time", "installation_id, timestamp")),
+        SOLAR_USAGE("solar_usage", "reading_timestamp",
+                List.of("id bigint not null", "installation_id bigint", "user_id bigint",
+                        "reading_timestamp timestamp(6) not null", "bill_amount float(53)",
+                        "grid_energy_used float(53)", "solar_energy_used float(53)"),
+                List.of("foreign key (installation_id) references installations",
+                        "foreign key (user_id) references users"),
+                Map.of("user_time", "user_id, reading_timestamp",
+                        "installation_time", "installation_id, reading_timestamp"));
+
+        private final String tableName;
+        private final String timeColumn;
+        private final List<String> columns;
+        private final List<String> foreignKeys;
+        // Index name suffix to columns; full names are idx_<table>_<suffix>
+        private final Map<String, String> indexes;
+
+        Table(String tableName, String timeColumn, List<String> columns, List<String> foreignKeys,
+                Map<String, String> indexes) {
+            this.tableName = tableName;
+            this.timeColumn = timeColumn;
+            this.columns = columns;
+            this.foreignKeys = foreignKeys;
+            this.indexes = indexes;
+        }
+
+        public String tableName() {
+            return tableName;
+        }
+
+        public String timeColumn() {
+            return timeColumn;
+        }
+
+        public List<String> columnNames() {
+            return columns.stream().map(column -> column.substring(0, column.indexOf(' '))).toList();
+        }
+
+        public int timeColumnIndex() {
+            return columnNames().indexOf(timeColumn);
+        }
+
+        public String monthTable(YearMonth month) {
+            return String.format("%s_y%04dm%02d", tableName, month.getYear(), month.getMonthValue());
+        }
+
+        /**
+         * @return the month of a table of this family, or null if the name isn't one
+         */
+        YearMonth monthOf(String table) {
+            String name = table.toLowerCase();
+            String prefix = tableName + "_y";
+            if (!name.startsWith(prefix) || name.length() != prefix.length() + 7 || name.charAt(prefix.length() + 4) != 'm') {
+                return null;
+            }
+            try {
+                return YearMonth.of(Integer.parseInt(name.substring(prefix.length(), prefix.length() + 4)),
+                        Integer.parseInt(name.substring(prefix.length() + 5)));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Months to keep, counting the current one; 0 keeps everything
+    @Value("${app.readings.retention-months}")
+    private int retentionMonths;
+
+    @Value("${app.readings.months-ahead}")
+    private int monthsAhead;
+
+    private TransactionTemplate newTransaction;
+
+    private boolean nativePartitioning;
+
+    private final Map<Table, NavigableSet<YearMonth>> months = new EnumMap<>(Table.class);
+
+    // Serializes partition DDL. A lock rather than synchronized because the holder
+    // waits on JDBC, which would pin the carrier of a virtual thread.
+    private final ReentrantLock ddlLock = new ReentrantLock();
+
+    @PostConstruct
+    void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        nativePartitioning = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) ReadingPartitions::isPostgres));
+        for (Table table : Table.values()) {
+            months.put(table, new ConcurrentSkipListSet<>(
+                    jdbcTemplate.execute((ConnectionCallback<List<YearMonth>>) connection -> listMonths(connection, table))));
+        }
+        maintain();
+    }
+
+    /**
+     * Creates the tables for the current month and the months ahead, and
+     * drops the months that have fallen out of retention.
+     */
+    @Scheduled(cron = "${app.readings.partition-cron}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        List<YearMonth> upcoming = new ArrayList<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            upcoming.add(current.plusMonths(i));
+        }
+        for (Table table : Table.values()) {
+            ensureMonths(table, upcoming);
+            if (retentionMonths > 0) {
+                dropMonthsBefore(table, current.minusMonths(retentionMonths - 1L));
+            }
+        }
+    }
+
+    /**
+     * @return true if readings for the month may be stored: it is neither
+     *         past retention nor further ahead than the scheduled months
+     */
+    public boolean accepts(YearMonth month) {
+        YearMonth current = YearMonth.now();
+        return !month.isAfter(current.plusMonths(monthsAhead))
+                && (retentionMonths <= 0 || !month.isBefore(current.minusMonths(retentionMonths - 1L)));
+    }
+
+    /**
+     * Creates any missing month tables, in a transaction of their own so it
+     * can be called before the readings are stored. Months outside
+     * {@link #accepts} are refused, as each one is a table of its own.
+     */
+    public void ensureMonths(Table table, Collection<YearMonth> required) {
+        NavigableSet<YearMonth> existing = months.get(table);
+        if (existing.containsAll(required)) {
+            return;
+        }
+        for (YearMonth month : required) {
+            if (!accepts(month)) {
+                throw new IllegalArgumentException("No partition may be created for " + month);
+            }
+        }
+        ddlLock.lock();
+        try {
+            List<YearMonth> missing = required.stream().filter(month -> !existing.contains(month)).distinct().toList();
+            if (missing.isEmpty()) {
+                return;
+            }
+            newTransaction.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (YearMonth month : missing) {
+                        createMonth(statement, table, month, nativePartitioning);
+                    }
+                    if (!nativePartitioning) {
+                        NavigableSet<YearMonth> all = new TreeSet<>(existing);
+                        all.addAll(missing);
+                        replaceView(statement, table, all);
+                    }
+                }
+                return null;
+            }));
+            existing.addAll(missing);
+            logger.info("Created {} partitions {}", table.tableName(),
+                    missing.stream().map(table::monthTable).collect(Collectors.joining(", ")));
+        } finally {
+            ddlLock.unlock();
+        }
+    }
+
+    /**
+     * Drops every month table before the given month.
+     */
+    public void dropMonthsBefore(Table table, YearMonth firstKept) {
+        NavigableSet<YearMonth> existing = months.get(table);
+        if (existing.isEmpty() || !existing.first().isBefore(firstKept)) {
+            return;
+        }
+        ddlLock.lock();
+        try {
+            List<YearMonth> expired = new ArrayList<>(existing.headSet(firstKept, false));
+            if (expired.isEmpty()) {
+                return;
+            }
+            newTransaction.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    if (!nativePartitioning) {
+                        // The view must stop referencing the tables before they go
+                        NavigableSet<YearMonth> kept = new TreeSet<>(existing.tailSet(firstKept, true));
+                        replaceView(statement, table, kept);
+                    }
+                    for (YearMonth month : expired) {
+                        statement.execute("drop table if exists " + table.monthTable(month));
+                    }
+                }
+                return null;
+            }));
+            existing.removeAll(expired);
+            logger.info("Dropped {} partitions {}", table.tableName(),
+                    expired.stream().map(table::monthTable).collect(Collectors.joining(", ")));
+        } finally {
+            ddlLock.unlock();
+        }
+    }
+
+    /**
+     * The rows of the months overlapping [from, to], to use after {@code from}
+     * in native SQL followed by an alias. Where the database prunes
+     * partitions itself this is just the parent table.
+     */
+    public String source(Table table, LocalDateTime from, LocalDateTime to) {
+        if (nativePartitioning) {
+            return table.tableName();
+        }
+        List<String> overlapping = months.get(table)
+                .subSet(YearMonth.from(from), true, YearMonth.from(to), true)
+                .stream()
+                .map(table::monthTable)
+                .toList();
+        if (overlapping.isEmpty()) {
+            return "(select * from " + table.tableName() + " where 1 = 0)";
+        }
+        if (overlapping.size() == 1) {
+            return overlapping.get(0);
+        }
+        return overlapping.stream()
+                .map(name -> "select * from " + name)
+                .collect(Collectors.joining(" union all ", "(", ")"));
+    }
+
+    /**
+     * Entities whose time column lies in [from, to] and whose key column
+     * equals the given value, read from the overlapping months only.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> findBetween(Class<T> type, Table table, String keyColumn, Object key,
+            LocalDateTime from, LocalDateTime to) {
+        String sql = "select r.* from " + source(table, from, to) + " r where r." + keyColumn + " = :key and r."
+                + table.timeColumn() + " between :from and :to";
+        return entityManager.createNativeQuery(sql, type)
+                .setParameter("key", key)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    public static boolean isPostgres(Connection connection) throws SQLException {
+        return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+
+    /**
+     * Creates the parent of the month tables: a partitioned table on
+     * PostgreSQL, an empty view with the routing trigger on H2.
+     */
+    public static void createParent(Statement statement, Table table, boolean nativePartitioning) throws SQLException {
+        if (nativePartitioning) {
+            List<String> definition = new ArrayList<>(table.columns);
+            definition.add("primary key (id, " + table.timeColumn() + ")");
+            definition.addAll(table.foreignKeys);
+            statement.execute("create table " + table.tableName() + " (" + String.join(", ", definition)
+                    + ") partition by range (" + table.timeColumn() + ")");
+            for (Map.Entry<String, String> index : table.indexes.entrySet()) {
+                statement.execute("create index idx_" + table.tableName() + "_" + index.getKey()
+                        + " on " + table.tableName() + " (" + index.getValue() + ")");
+            }
+            return;
+        }
+        replaceView(statement, table, new TreeSet<>());
+        statement.execute("create trigger " + table.tableName() + "_route instead of insert on " + table.tableName()
+                + " for each row call 'com.communitysolar.config.H2ReadingRouter'");
+    }
+
+    public static void createMonth(Statement statement, Table table, YearMonth month, boolean nativePartitioning)
+            throws SQLException {
+        String name = table.monthTable(month);
+        if (nativePartitioning) {
+            statement.execute("create table if not exists " + name + " partition of " + table.tableName()
+                    + " for values from ('" + month.atDay(1) + "') to ('" + month.plusMonths(1).atDay(1) + "')");
+            return;
+        }
+        List<String> definition = new ArrayList<>(table.columns);
+        definition.add("primary key (id)");
+        definition.add("check (" + table.timeColumn() + " >= timestamp '" + month.atDay(1) + " 00:00:00' and "
+                + table.timeColumn() + " < timestamp '" + month.plusMonths(1).atDay(1) + " 00:00:00')");
+        definition.addAll(table.foreignKeys);
+        statement.execute("create table if not exists " + name + " (" + String.join(", ", definition) + ")");
+        for (Map.Entry<String, String> index : table.indexes.entrySet()) {
+            statement.execute("create index if not exists idx_" + name + "_" + index.getKey()
+                    + " on " + name + " (" + index.getValue() + ")");
+        }
+    }
+
+    /**
+     * Points the H2 view at the given months. With none it is an empty
+     * relation of the right column types.
+     */
+    public static void replaceView(Statement statement, Table table, NavigableSet<YearMonth> included)
+            throws SQLException {
+        String columns = String.join(", ", table.columnNames());
+        String body;
+        if (included.isEmpty()) {
+            body = table.columns.stream()
+                    .map(column -> {
+                        int space = column.indexOf(' ');
+                        String type = column.substring(space + 1).replace(" not null", "");
+                        return "cast(null as " + type + ") " + column.substring(0, space);
+                    })
+                    .collect(Collectors.joining(", ", "select ", " where false"));
+        } else {
+            body = included.stream()
+                    .map(month -> "select " + columns + " from " + table.monthTable(month))
+                    .collect(Collectors.joining(" union all "));
+        }
+        statement.execute("create or replace view " + table.tableName() + " as " + body);
+    }
+
+    public static List<YearMonth> listMonths(Connection connection, Table table) throws SQLException {
+        List<YearMonth> found = new ArrayList<>();
+        try (ResultSet rs = connection.getMetaData().getTables(null, null, null, new String[] { "TABLE", "BASE TABLE" })) {
+            while (rs.next()) {
+                YearMonth month = table.monthOf(rs.getString("TABLE_NAME"));
+                if (month != null) {
+                    found.add(month);
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,220 @@
+package com.communitysolar.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.communitysolar.model.Address;
+import com.communitysolar.model.SolarPlan;
+import com.communitysolar.util.TNEBTariffCalculator;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Monte Carlo payback and lifetime-savings distribution for a solar plan.
+ *
+ * Each scenario draws its own tariff escalation, panel degradation rate and
+ * year-by-year weather, then prices every month through the TNEB tariff: the
+ * saving is the bill at the household's usage minus the bill on what the grid
+ * still has to supply. Scenarios are split into chunks that each get their own
+ * {@link SplittableRandom} (split off a single root on the calling thread, so
+ * a seeded run is reproducible) and write into disjoint slices of the result
+ * arrays, so the parallel work shares no mutable state.
+ *
+ * Chunks run on a pool of this service's own rather than the common
+ * fork-join pool, so simulations cannot starve other users of that pool and
+ * their total CPU is capped by {@code app.solar.roi.threads}. When the pool's
+ * queue is full the requesting thread runs the chunk itself, which slows that
+ * request down instead of queueing without bound.
+ */
+@Service
+public class RoiSimulationService {
+
+    static final int CHUNK_SIZE = 1024;
+
+    // Annual tariff escalation: mean and standard deviation
+    static final double ESCALATION_MEAN = 0.04;
+    static final double ESCALATION_SD = 0.015;
+
+    // Panel degradation per year, drawn uniformly
+    static final double DEGRADATION_MIN = 0.004;
+    static final double DEGRADATION_MAX = 0.008;
+
+    // Year-to-year variation of output around the TMY year
+    static final double WEATHER_SD = 0.05;
+
+    @Autowired
+    private HourlySolarSimulator simulator;
+
+    @Value("${app.solar.roi.lifetime-years}")
+    private int lifetimeYears;
+
+    @Value("${app.solar.roi.max-scenarios}")
+    private int maxScenarios;
+
+    @Value("${app.solar.roi.threads}")
+    private int threads;
+
+    @Value("${app.solar.roi.queue-capacity}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "roi-simulation-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getMaxScenarios() {
+        return maxScenarios;
+    }
+
+    /**
+     * @param seed fixes the random streams for a reproducible run; null draws a fresh seed
+     */
+    public Map<String, Object> simulate(SolarPlan plan, int scenarios, Long seed) {
+        Address address = plan.getAddress();
+        double monthlyUsage = plan.getMonthlyUsageKwh();
+
+        double[] monthlyProduction = new double[12];
+        simulator.specificYield(address.getZipCode(), address.getRoofType(), monthlyProduction);
+        for (int month = 0; month < 12; month++) {
+            monthlyProduction[month] *= plan.getSystemSizeKw();
+        }
+        double baseBill = TNEBTariffCalculator.calculateBill(monthlyUsage);
+        double cost = plan.getEstimatedCost();
+
+        double[] payback = new double[scenarios];
+        double[] lifetimeSavings = new double[scenarios];
+
+        int chunks = (scenarios + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        SplittableRandom root = seed != null ? new SplittableRandom(seed) : new SplittableRandom();
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int i = 0; i < chunks; i++) {
+            streams[i] = root.split();
+        }
+
+        List<Future<?>> results = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int chunk = c;
+            results.add(executor.submit(() -> {
+                SplittableRandom random = streams[chunk];
+                int end = Math.min(scenarios, (chunk + 1) * CHUNK_SIZE);
+                for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                    runScenario(random, monthlyUsage, monthlyProduction, baseBill, cost, payback, lifetimeSavings, i);
+                }
+            }));
+        }
+        await(results);
+
+        Arrays.sort(payback);
+        Arrays.sort(lifetimeSavings);
+        int paidBack = 0;
+        while (paidBack < scenarios && payback[paidBack] != Double.POSITIVE_INFINITY) {
+            paidBack++;
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("planId", plan.getId());
+        response.put("scenarios", scenarios);
+        response.put("lifetimeYears", lifetimeYears);
+        response.put("estimatedCost", cost);
+        response.put("paybackYears", percentiles(payback));
+        response.put("lifetimeSavings", percentiles(lifetimeSavings));
+        response.put("probabilityOfPayback", (double) paidBack / scenarios);
+        return response;
+    }
+
+    private void runScenario(SplittableRandom random, double monthlyUsage, double[] monthlyProduction,
+            double baseBill, double cost, double[] payback, double[] lifetimeSavings, int index) {
+        double escalation = ESCALATION_MEAN + ESCALATION_SD * random.nextGaussian();
+        double degradation = DEGRADATION_MIN + (DEGRADATION_MAX - DEGRADATION_MIN) * random.nextDouble();
+
+        double tariffFactor = 1.0;
+        double outputFactor = 1.0;
+        double cumulative = 0.0;
+        double paybackYears = Double.POSITIVE_INFINITY;
+        for (int year = 0; year < lifetimeYears; year++) {
+            double weather = Math.max(0.0, 1.0 + WEATHER_SD * random.nextGaussian());
+            double yearSavings = 0.0;
+            for (int month = 0; month < 12; month++) {
+                double gridUnits = Math.max(0.0, monthlyUsage - monthlyProduction[month] * outputFactor * weather);
+                yearSavings += baseBill - TNEBTariffCalculator.calculateBill(gridUnits);
+            }
+            yearSavings *= tariffFactor;
+
+            if (paybackYears == Double.POSITIVE_INFINITY && yearSavings > 0 && cumulative + yearSavings >= cost) {
+                paybackYears = year + (cost - cumulative) / yearSavings;
+            }
+            cumulative += yearSavings;
+            tariffFactor *= 1.0 + escalation;
+            outputFactor *= 1.0 - degradation;
+        }
+
+        payback[index] = paybackYears;
+        lifetimeSavings[index] = cumulative;
+    }
+
+    // Waits for every chunk; a failed chunk fails the simulation and the rest are abandoned
+    private static void await(List<Future<?>> results) {
+        try {
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            results.forEach(result -> result.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating", e);
+        } catch (ExecutionException e) {
+            results.forEach(result -> result.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("ROI simulation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Percentiles of a sorted sample; a payback that never happens within the
+     * lifetime is reported as null.
+     */
+    private static Map<String, Object> percentiles(double[] sorted) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("p10", finite(sorted[(int) Math.round(0.10 * (sorted.length - 1))]));
+        result.put("p50", finite(sorted[(int) Math.round(0.50 * (sorted.length - 1))]));
+        result.put("p90", finite(sorted[(int) Math.round(0.90 * (sorted.length - 1))]));
+        return result;
+    }
+
+    private static Double finite(double value) {
+        return Double.isFinite(value) ? value : null;
+    }
+}
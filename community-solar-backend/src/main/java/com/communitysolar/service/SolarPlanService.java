@@ -0,0 +1,261 @@
+package com.communitysolar.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.communitysolar.model.Address;
+import com.communitysolar.model.SolarPlan;
+import com.communitysolar.repository.SolarPlanRepository;
+import com.communitysolar.util.SolarPlanCalculator;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Generates solar plans, reusing the stored plan whenever one was already
+ * computed from identical inputs (matched on {@link SolarPlan#getInputHash()}),
+ * so a row is only written when the inputs change. The hash is unique in the
+ * table; when two requests store the same inputs at once, the loser rereads
+ * the winner's plan.
+ *
+ * Batch sizing is CPU-only and independent per address, so the loaded
+ * addresses are sized in chunks on a pool of this service's own, capped by
+ * {@code app.solar.batch.threads}, rather than on the common fork-join pool.
+ * When the pool's queue is full the request thread sizes the chunk itself.
+ * New plans are then written in chunks on the request thread, which owns the
+ * transaction.
+ */
+@Service
+public class SolarPlanService {
+
+    static final int CHUNK_SIZE = 500;
+
+    // Addresses sized per pool task
+    static final int SIZING_CHUNK_SIZE = 64;
+
+    @Autowired
+    private SolarPlanRepository solarPlanRepository;
+
+    @Autowired
+    private HourlySolarSimulator simulator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.solar.batch.threads}")
+    private int threads;
+
+    @Value("${app.solar.batch.queue-capacity}")
+    private int queueCapacity;
+
+    private TransactionTemplate newTransaction;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "solar-plan-batch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the stored plan for these inputs, or null if there is no positive
+     *         monthly usage to size for
+     */
+    public SolarPlan findOrCreate(Address address, Double monthlyUsage, Double monthlyBill) {
+        SolarPlan plan = SolarPlanCalculator.generateSolarPlan(address, monthlyUsage, monthlyBill,
+                simulator.specificYield(address.getZipCode(), address.getRoofType()), simulator.dataVersion());
+        if (plan == null) {
+            return null;
+        }
+        return solarPlanRepository.findByInputHash(plan.getInputHash()).orElseGet(() -> {
+            try {
+                return newTransaction.execute(status -> solarPlanRepository.saveAndFlush(plan));
+            } catch (DataIntegrityViolationException e) {
+                // Another request stored the same inputs first
+                return solarPlanRepository.findByInputHash(plan.getInputHash()).orElseThrow(() -> e);
+            }
+        });
+    }
+
+    public Map<String, Object> generateBatch(List<Address> addresses, Collection<Long> missingAddressIds) {
+        try {
+            return newTransaction.execute(status -> generateBatchOnce(addresses, missingAddressIds));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request stored some of the same inputs; they are reused on the second pass
+            return newTransaction.execute(status -> generateBatchOnce(addresses, missingAddressIds));
+        }
+    }
+
+    private Map<String, Object> generateBatchOnce(List<Address> addresses, Collection<Long> missingAddressIds) {
+        List<SolarPlan> plans = size(addresses);
+
+        List<String> hashes = plans.stream().filter(plan -> plan != null).map(SolarPlan::getInputHash).toList();
+        Map<String, SolarPlan> existing = hashes.isEmpty() ? Map.of()
+                : solarPlanRepository.findByInputHashIn(hashes).stream()
+                        .collect(Collectors.toMap(SolarPlan::getInputHash, Function.identity()));
+
+        List<SolarPlan> toSave = new ArrayList<>();
+        boolean[] reused = new boolean[plans.size()];
+        for (int i = 0; i < plans.size(); i++) {
+            SolarPlan plan = plans.get(i);
+            if (plan == null) {
+                continue;
+            }
+            SolarPlan stored = existing.get(plan.getInputHash());
+            if (stored != null) {
+                plans.set(i, stored);
+                reused[i] = true;
+            } else {
+                toSave.add(plan);
+            }
+        }
+
+        for (int start = 0; start < toSave.size(); start += CHUNK_SIZE) {
+            solarPlanRepository.saveAll(toSave.subList(start, Math.min(start + CHUNK_SIZE, toSave.size())));
+            entityManager.flush();
+            entityManager.clear();
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(addresses.size() + missingAddressIds.size());
+        double totalSystemSizeKw = 0.0;
+        double totalProductionKwh = 0.0;
+        double totalCost = 0.0;
+        double totalAnnualSavings = 0.0;
+        int totalPanels = 0;
+        int planned = 0;
+
+        for (int i = 0; i < addresses.size(); i++) {
+            Address address = addresses.get(i);
+            SolarPlan plan = plans.get(i);
+            Map<String, Object> result = new HashMap<>();
+            result.put("addressId", address.getId());
+            if (plan == null) {
+                result.put("error", "Insufficient data to generate a solar plan.");
+                results.add(result);
+                continue;
+            }
+            result.put("planId", plan.getId());
+            result.put("reused", reused[i]);
+            result.put("systemSizeKw", plan.getSystemSizeKw());
+            result.put("estimatedProductionKwh", plan.getEstimatedProductionKwh());
+            result.put("panelCount", plan.getPanelCount());
+            result.put("estimatedCost", plan.getEstimatedCost());
+            result.put("roiYears", plan.getRoiYears());
+            results.add(result);
+
+            planned++;
+            totalSystemSizeKw += plan.getSystemSizeKw();
+            totalProductionKwh += plan.getEstimatedProductionKwh();
+            totalCost += plan.getEstimatedCost();
+            totalPanels += plan.getPanelCount();
+            if (plan.getRoiYears() != null) {
+                totalAnnualSavings += plan.getEstimatedCost() / plan.getRoiYears();
+            }
+        }
+
+        for (Long missingId : missingAddressIds) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("addressId", missingId);
+            result.put("error", "Address not found.");
+            results.add(result);
+        }
+
+        Map<String, Object> total = new HashMap<>();
+        total.put("plans", planned);
+        total.put("created", toSave.size());
+        total.put("reused", planned - toSave.size());
+        total.put("skipped", results.size() - planned);
+        total.put("systemSizeKw", totalSystemSizeKw);
+        total.put("estimatedProductionKwh", totalProductionKwh);
+        total.put("panelCount", totalPanels);
+        total.put("estimatedCost", totalCost);
+        total.put("roiYears", totalAnnualSavings > 0 ? totalCost / totalAnnualSavings : null);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("results", results);
+        response.put("total", total);
+        return response;
+    }
+
+    /**
+     * @return one plan per address, in the same order; null where there is no usage to size for
+     */
+    private List<SolarPlan> size(List<Address> addresses) {
+        String dataVersion = simulator.dataVersion();
+        SolarPlan[] plans = new SolarPlan[addresses.size()];
+        List<Future<?>> results = new ArrayList<>((addresses.size() + SIZING_CHUNK_SIZE - 1) / SIZING_CHUNK_SIZE);
+        for (int start = 0; start < addresses.size(); start += SIZING_CHUNK_SIZE) {
+            int from = start;
+            int to = Math.min(start + SIZING_CHUNK_SIZE, addresses.size());
+            results.add(executor.submit(() -> {
+                for (int i = from; i < to; i++) {
+                    Address address = addresses.get(i);
+                    plans[i] = SolarPlanCalculator.generateSolarPlan(address, null, null,
+                            simulator.specificYield(address.getZipCode(), address.getRoofType()), dataVersion);
+                }
+            }));
+        }
+        await(results);
+        return new ArrayList<>(Arrays.asList(plans));
+    }
+
+    private static void await(List<Future<?>> results) {
+        try {
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            results.forEach(result -> result.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sizing solar plans", e);
+        } catch (ExecutionException e) {
+            results.forEach(result -> result.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Solar plan sizing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.communitysolar.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.communitysolar.util.SolarPlanCalculator;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Precomputed specific yield (kWh per kWp per year) for every PIN code and
+ * roof type, built offline by {@code PotentialTileBuilder} so the common
+ * lookups skip the hourly simulation entirely.
+ *
+ * Held in an open-addressing map over primitive arrays: PIN codes in an int
+ * array probed linearly, and one float per roof type in a parallel array. All
+ * ~19,000 Indian PIN codes take about 1.5 MB. File layout (big-endian):
+ * int magic ('SPT1'), int count, then per entry an int PIN followed by one
+ * float per entry of {@link SolarPlanCalculator#ROOF_TYPES}.
+ */
+@Component
+public class SolarPotentialTiles {
+    private static final Logger logger = LoggerFactory.getLogger(SolarPotentialTiles.class);
+
+    public static final int MAGIC = 0x53505431; // "SPT1"
+
+    private static final int EMPTY = -1;
+    private static final int ROOF_TYPES = SolarPlanCalculator.ROOF_TYPES.length;
+
+    @Value("${app.solar.tiles.file}")
+    private String tileFile;
+
+    private int[] keys = { EMPTY };
+    private float[] yields = new float[ROOF_TYPES];
+    private int mask = 0;
+
+    private String dataVersion = "none";
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!StringUtils.hasText(tileFile)) {
+            logger.info("No solar potential tiles configured; yields are simulated per request");
+            return;
+        }
+
+        Path path = Path.of(tileFile);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a solar potential tile file: " + path);
+            }
+            int count = in.readInt();
+            int capacity = Integer.highestOneBit(Math.max(1, count * 2 - 1)) << 1;
+            int[] tileKeys = new int[capacity];
+            float[] tileYields = new float[capacity * ROOF_TYPES];
+            Arrays.fill(tileKeys, EMPTY);
+            int tileMask = capacity - 1;
+            for (int i = 0; i < count; i++) {
+                int slot = slot(tileKeys, tileMask, in.readInt());
+                for (int roof = 0; roof < ROOF_TYPES; roof++) {
+                    tileYields[slot * ROOF_TYPES + roof] = in.readFloat();
+                }
+            }
+            keys = tileKeys;
+            yields = tileYields;
+            mask = tileMask;
+            dataVersion = "tiles-" + SolarPlanCalculator.sha256Hex(ByteBuffer.wrap(Files.readAllBytes(path)))
+                    .substring(0, 16);
+            logger.info("Loaded {} solar potential tiles ({} KB) from {} (version {})", count,
+                    (tileKeys.length * 4L + tileYields.length * 4L) / 1024, path, dataVersion);
+        }
+    }
+
+    /**
+     * @return "none", or a digest of the tile file, so results can be tied to
+     *         the data they were computed from
+     */
+    public String getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * @return the precomputed yield, or NaN if the PIN code has no tile
+     */
+    public float specificYield(String zipCode, String roofType) {
+        int pin = pinCode(zipCode);
+        if (pin < 0) {
+            return Float.NaN;
+        }
+        int[] tileKeys = keys;
+        int slot = mix(pin) & mask;
+        while (tileKeys[slot] != EMPTY) {
+            if (tileKeys[slot] == pin) {
+                return yields[slot * ROOF_TYPES + SolarPlanCalculator.roofTypeIndex(roofType)];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return Float.NaN;
+    }
+
+    /**
+     * @return the PIN code as an int, or -1 if it isn't six digits
+     */
+    public static int pinCode(String zipCode) {
+        if (zipCode == null) {
+            return -1;
+        }
+        String trimmed = zipCode.trim();
+        if (trimmed.length() != 6) {
+            return -1;
+        }
+        int pin = 0;
+        for (int i = 0; i < 6; i++) {
+            char c = trimmed.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            pin = pin * 10 + (c - '0');
+        }
+        return pin;
+    }
+
+    public static void write(Path path, int[] pins, float[][] yieldsByRoofType) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(pins.length);
+            for (int i = 0; i < pins.length; i++) {
+                out.writeInt(pins[i]);
+                for (int roof = 0; roof < ROOF_TYPES; roof++) {
+                    out.writeFloat(yieldsByRoofType[i][roof]);
+                }
+            }
+        }
+    }
+
+    private static int slot(int[] tileKeys, int tileMask, int pin) {
+        int slot = mix(pin) & tileMask;
+        while (tileKeys[slot] != EMPTY && tileKeys[slot] != pin) {
+            slot = (slot + 1) & tileMask;
+        }
+        tileKeys[slot] = pin;
+        return slot;
+    }
+
+    // PIN codes are dense in their low digits; spread them before masking
+    private static int mix(int pin) {
+        int h = pin * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
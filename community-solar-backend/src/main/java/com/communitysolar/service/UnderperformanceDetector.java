@@ -0,0 +1,375 @@
+package com.communitysolar.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Streaming check of generation readings for installations that have stopped
+ * producing properly.
+ *
+ * Readings are summed per installation per hour. Installations are grouped by
+ * community (an installation outside any community is a group of its own), and
+ * when the first reading of a new hour reaches a group, the group's previous
+ * hour is closed: each member's output per kW is compared with
+ * <ul>
+ *   <li>its own baseline for that hour of day, an EWMA of past output, and</li>
+ *   <li>the mean output per kW of the other members in the same hour.</li>
+ * </ul>
+ * An hour is low when output is under {@code low-ratio} of both (or of the
+ * baseline alone when too few neighbours reported), so a cloudy day that pulls
+ * everyone down doesn't count. A run of low hours raises one alert; the next
+ * normal hour resolves it. Low hours are kept out of the baseline.
+ *
+ * A member that has sent nothing for {@code stale-after-hours} is judged as
+ * producing nothing when its group closes an hour, and {@link #sweep} closes
+ * the hours of groups that have gone quiet altogether, so an installation
+ * that stops reporting is alerted on like one that stops generating.
+ *
+ * All state lives in primitive arrays indexed by a dense slot per installation
+ * (about 250 bytes each, 25 MB for 100,000 installations), so a reading
+ * costs a table probe and a few array writes and allocates nothing. A group's
+ * state is only touched under its lock stripe, so different communities are
+ * processed in parallel. Readings for an hour the group has already closed
+ * are not evaluated. State is in memory only; after a restart baselines are
+ * relearnt over the warm-up period.
+ */
+@Component
+public class UnderperformanceDetector {
+    private static final Logger logger = LoggerFactory.getLogger(UnderperformanceDetector.class);
+
+    private static final int HOURS_PER_DAY = 24;
+    private static final int LOCK_STRIPES = 64;
+    private static final long NO_INTERVAL = Long.MIN_VALUE;
+
+    /**
+     * A change of alert state for one installation, in kWh per kW.
+     *
+     * @param neighbourKwhPerKw NaN when too few neighbours reported
+     */
+    public record Event(long installationId, long intervalStartEpochSecond, double actualKwhPerKw,
+            double baselineKwhPerKw, double neighbourKwhPerKw, boolean resolved) {
+    }
+
+    @Value("${app.monitoring.detector.max-installations}")
+    private int maxInstallations;
+
+    @Value("${app.monitoring.detector.baseline-alpha}")
+    private double alpha;
+
+    @Value("${app.monitoring.detector.warmup-samples}")
+    private int warmupSamples;
+
+    @Value("${app.monitoring.detector.low-ratio}")
+    private double lowRatio;
+
+    @Value("${app.monitoring.detector.alert-after-hours}")
+    private int alertAfterHours;
+
+    @Value("${app.monitoring.detector.min-neighbours}")
+    private int minNeighbours;
+
+    // Hours expected to produce less than this per kW (night, dawn) are never judged
+    @Value("${app.monitoring.detector.min-expected-kwh-per-kw}")
+    private double minExpectedKwhPerKw;
+
+    @Value("${app.monitoring.detector.stale-after-hours}")
+    private int staleAfterHours;
+
+    // Hours a silent group is caught up by per sweep; older ones are skipped
+    private static final int MAX_SWEEP_HOURS = HOURS_PER_DAY;
+
+    private IdTable slots;
+    private IdTable groups;
+    private int slotCount;
+    private int groupCount;
+
+    // Per installation, indexed by slot
+    private long[] installationIds;
+    private float[] capacityKw;
+    private int[] groupOf;
+    private int[] nextInGroup;
+    private long[] interval;
+    private double[] intervalKwh;
+    private int[] lowHours;
+    private boolean[] alerted;
+
+    // Per installation and hour of day, indexed by slot * 24 + hour
+    private float[] baseline;
+    private byte[] baselineSamples;
+
+    // Per group: first member slot and the hour currently being collected
+    private int[] groupHead;
+    private long[] groupInterval;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+
+    // Installations turned away because the detector was full, so they aren't looked up again
+    private final Set<Long> unmonitored = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        slots = new IdTable(maxInstallations);
+        groups = new IdTable(maxInstallations);
+        installationIds = new long[maxInstallations];
+        capacityKw = new float[maxInstallations];
+        groupOf = new int[maxInstallations];
+        nextInGroup = new int[maxInstallations];
+        interval = new long[maxInstallations];
+        intervalKwh = new double[maxInstallations];
+        lowHours = new int[maxInstallations];
+        alerted = new boolean[maxInstallations];
+        baseline = new float[maxInstallations * HOURS_PER_DAY];
+        baselineSamples = new byte[maxInstallations * HOURS_PER_DAY];
+        groupHead = new int[maxInstallations];
+        groupInterval = new long[maxInstallations];
+        Arrays.fill(interval, NO_INTERVAL);
+        Arrays.fill(groupHead, -1);
+        Arrays.fill(groupInterval, NO_INTERVAL);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return true if the installation has been registered, whether or not
+     *         there was room to monitor it
+     */
+    public boolean isKnown(long installationId) {
+        return slots.get(installationId) >= 0 || unmonitored.contains(installationId);
+    }
+
+    /**
+     * Starts tracking an installation. Installations without a positive
+     * capacity are tracked (so they aren't looked up again) but never judged.
+     * When the detector is full the installation is remembered as unmonitored.
+     *
+     * @return false if the detector is full
+     */
+    public synchronized boolean register(long installationId, Long communityId, Double systemSizeKw) {
+        if (slots.get(installationId) >= 0) {
+            return true;
+        }
+        if (slotCount == maxInstallations) {
+            if (unmonitored.add(installationId)) {
+                logger.warn("Underperformance detector is full at {} installations; installation {} is not monitored",
+                        maxInstallations, installationId);
+            }
+            return false;
+        }
+        long groupKey = communityId != null ? communityId : -installationId;
+        int group = groups.get(groupKey);
+        if (group < 0) {
+            group = groupCount++;
+            groups.put(groupKey, group);
+        }
+        int slot = slotCount++;
+        synchronized (lockFor(group)) {
+            installationIds[slot] = installationId;
+            capacityKw[slot] = systemSizeKw != null && systemSizeKw > 0 ? systemSizeKw.floatValue() : 0f;
+            groupOf[slot] = group;
+            nextInGroup[slot] = groupHead[group];
+            groupHead[group] = slot;
+        }
+        slots.put(installationId, slot);
+        return true;
+    }
+
+    /**
+     * Adds a reading to its installation's hour.
+     *
+     * @return false if the installation isn't tracked or the hour is already closed
+     */
+    public boolean record(long installationId, long epochSecond, double energyProducedKwh) {
+        int slot = slots.get(installationId);
+        if (slot < 0) {
+            return false;
+        }
+        long hour = Math.floorDiv(epochSecond, 3600L);
+        int group = groupOf[slot];
+        synchronized (lockFor(group)) {
+            long open = groupInterval[group];
+            if (hour < open) {
+                return false;
+            }
+            if (hour > open) {
+                if (open != NO_INTERVAL) {
+                    closeInterval(group, open);
+                }
+                groupInterval[group] = hour;
+            }
+            if (interval[slot] != hour) {
+                interval[slot] = hour;
+                intervalKwh[slot] = 0.0;
+            }
+            intervalKwh[slot] += energyProducedKwh;
+        }
+        return true;
+    }
+
+    /**
+     * Closes the hours of groups that have received nothing for
+     * {@code stale-after-hours}, up to {@code nowHour - stale-after-hours},
+     * judging their silent members.
+     *
+     * @param nowHour the current hour, in the readings' epoch hours
+     */
+    public void sweep(long nowHour) {
+        int groupsToSweep;
+        synchronized (this) {
+            groupsToSweep = groupCount;
+        }
+        long limit = nowHour - staleAfterHours;
+        for (int group = 0; group < groupsToSweep; group++) {
+            synchronized (lockFor(group)) {
+                long open = groupInterval[group];
+                if (open == NO_INTERVAL || open > limit) {
+                    continue;
+                }
+                closeInterval(group, open);
+                for (long hour = Math.max(open + 1, limit - MAX_SWEEP_HOURS + 1); hour <= limit; hour++) {
+                    closeInterval(group, hour);
+                }
+                groupInterval[group] = limit + 1;
+            }
+        }
+    }
+
+    /**
+     * Moves pending alert changes into the given list, oldest first.
+     */
+    public void drainEvents(List<Event> into) {
+        Event event;
+        while ((event = events.poll()) != null) {
+            into.add(event);
+        }
+    }
+
+    private void closeInterval(int group, long hour) {
+        double sum = 0.0;
+        int reporting = 0;
+        for (int slot = groupHead[group]; slot >= 0; slot = nextInGroup[slot]) {
+            if (interval[slot] == hour && capacityKw[slot] > 0) {
+                sum += intervalKwh[slot] / capacityKw[slot];
+                reporting++;
+            }
+        }
+        int hourOfDay = (int) Math.floorMod(hour, (long) HOURS_PER_DAY);
+        for (int slot = groupHead[group]; slot >= 0; slot = nextInGroup[slot]) {
+            if (capacityKw[slot] <= 0) {
+                continue;
+            }
+            if (interval[slot] == hour) {
+                double output = intervalKwh[slot] / capacityKw[slot];
+                double neighbours = reporting - 1 >= minNeighbours ? (sum - output) / (reporting - 1) : Double.NaN;
+                evaluate(slot, hour, hourOfDay, output, neighbours);
+            } else if (interval[slot] == NO_INTERVAL || interval[slot] <= hour - staleAfterHours) {
+                evaluateSilent(slot, hour, hourOfDay, reporting >= minNeighbours ? sum / reporting : Double.NaN);
+            }
+        }
+    }
+
+    // A silent hour counts as no output, but only once the baseline expects some
+    private void evaluateSilent(int slot, long hour, int hourOfDay, double neighbours) {
+        int cell = slot * HOURS_PER_DAY + hourOfDay;
+        if (baselineSamples[cell] >= warmupSamples && baseline[cell] >= minExpectedKwhPerKw) {
+            evaluate(slot, hour, hourOfDay, 0.0, neighbours);
+        }
+    }
+
+    private void evaluate(int slot, long hour, int hourOfDay, double output, double neighbours) {
+        int cell = slot * HOURS_PER_DAY + hourOfDay;
+        double expected = baseline[cell];
+        if (baselineSamples[cell] < warmupSamples || expected < minExpectedKwhPerKw) {
+            learn(cell, output);
+            return;
+        }
+
+        if (output < lowRatio * expected && (Double.isNaN(neighbours) || output < lowRatio * neighbours)) {
+            if (++lowHours[slot] >= alertAfterHours && !alerted[slot]) {
+                alerted[slot] = true;
+                events.add(new Event(installationIds[slot], hour * 3600L, output, expected, neighbours, false));
+            }
+            return;
+        }
+
+        lowHours[slot] = 0;
+        if (alerted[slot]) {
+            alerted[slot] = false;
+            events.add(new Event(installationIds[slot], hour * 3600L, output, expected, neighbours, true));
+        }
+        learn(cell, output);
+    }
+
+    private void learn(int cell, double output) {
+        double expected = baseline[cell];
+        baseline[cell] = baselineSamples[cell] == 0 ? (float) output : (float) (expected + alpha * (output - expected));
+        if (baselineSamples[cell] < Byte.MAX_VALUE) {
+            baselineSamples[cell]++;
+        }
+    }
+
+    private Object lockFor(int group) {
+        return locks[group & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Open-addressing map from a non-zero id to a dense index. Lookups are
+     * lock-free: the index is written before the key is published. Inserts
+     * must be serialised by the caller and stay within the expected size.
+     */
+    private static final class IdTable {
+        private static final long EMPTY = 0L;
+
+        private final AtomicLongArray keys;
+        private final int[] values;
+        private final int mask;
+
+        IdTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(1, expected * 2 - 1)) << 1;
+            keys = new AtomicLongArray(capacity);
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        int get(long key) {
+            int slot = mix(key) & mask;
+            long stored;
+            while ((stored = keys.get(slot)) != EMPTY) {
+                if (stored == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            int slot = mix(key) & mask;
+            while (keys.get(slot) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            values[slot] = value;
+            keys.set(slot, key);
+        }
+
+        // Database ids are sequential; spread them before masking
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.communitysolar.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+/**
+ * Single-flight cache loads that run on the calling thread, outside any lock.
+ *
+ * {@code Cache.get(key, loader)} runs the loader inside a ConcurrentHashMap
+ * compute, which holds a monitor; a virtual thread waiting on the database
+ * there pins its carrier thread. Here the first caller publishes a future and
+ * loads without holding anything, and concurrent callers for the same key wait
+ * on that future. A failed load is dropped from the cache and its exception
+ * reaches every waiter.
+ */
+public final class CallerRunsLoader {
+
+    private CallerRunsLoader() {
+    }
+
+    public static <K, V> V get(AsyncCache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> existing = cache.asMap().putIfAbsent(key, loading);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            V value = loader.apply(key);
+            loading.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
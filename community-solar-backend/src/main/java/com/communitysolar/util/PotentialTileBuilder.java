@@ -0,0 +1,59 @@
+package com.communitysolar.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.communitysolar.service.HourlySolarSimulator;
+import com.communitysolar.service.IrradianceProfileStore;
+import com.communitysolar.service.SolarPotentialTiles;
+
+/**
+ * Offline tool that precomputes the solar potential tiles loaded by
+ * {@link SolarPotentialTiles}: the simulated yield of every PIN code for every
+ * roof type.
+ *
+ * Usage: {@code PotentialTileBuilder <tmy-file|""> <pin-list> <output-file>},
+ * where the PIN list has one six-digit PIN code per line (other lines, such as
+ * a header, are skipped). Rebuild whenever the TMY profiles or the simulation
+ * model change.
+ */
+public class PotentialTileBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(PotentialTileBuilder.class);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            logger.error("Usage: PotentialTileBuilder <tmy-file|\"\"> <pin-list> <output-file>");
+            System.exit(1);
+        }
+
+        IrradianceProfileStore store = IrradianceProfileStore.open(args[0]);
+        TreeSet<Integer> pins = new TreeSet<>();
+        for (String line : Files.readAllLines(Path.of(args[1]))) {
+            int pin = SolarPotentialTiles.pinCode(line);
+            if (pin >= 0) {
+                pins.add(pin);
+            }
+        }
+
+        int[] pinCodes = new int[pins.size()];
+        float[][] yields = new float[pins.size()][SolarPlanCalculator.ROOF_TYPES.length];
+        int i = 0;
+        for (int pin : pins) {
+            String zipCode = String.format("%06d", pin);
+            pinCodes[i] = pin;
+            for (int roof = 0; roof < SolarPlanCalculator.ROOF_TYPES.length; roof++) {
+                yields[i][roof] = (float) HourlySolarSimulator.specificYield(store, zipCode,
+                        SolarPlanCalculator.ROOF_TYPES[roof], null);
+            }
+            i++;
+        }
+
+        SolarPotentialTiles.write(Path.of(args[2]), pinCodes, yields);
+        logger.info("Wrote {} tiles to {}", pinCodes.length, args[2]);
+    }
+}
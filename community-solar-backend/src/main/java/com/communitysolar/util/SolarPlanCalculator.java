@@ -0,0 +1,180 @@
+package com.communitysolar.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import com.communitysolar.model.Address;
+import com.communitysolar.model.SolarPlan;
+
+/**
+ * Sizing model shared by the single-address and batch solar-plan endpoints.
+ * Methods are pure functions of their inputs so they can be run in parallel.
+ */
+public class SolarPlanCalculator {
+
+    // Bump whenever the sizing model below changes so plans are regenerated
+    // instead of being reused from an older model
+    public static final String MODEL_VERSION = "2";
+
+    public static final double PANEL_WATTS = 350.0;
+
+    // Approx. ₹60,000 per kW installed for good quality system in India
+    public static final double COST_PER_KW = 60000.0;
+
+    // Share of the current bill the system is expected to offset at full coverage
+    public static final double BILL_SAVINGS_RATIO = 0.9;
+
+    // Share of the floor area usable as shade-free roof, and roof area per kW installed
+    public static final double USABLE_ROOF_FRACTION = 0.5;
+    public static final double SQFT_PER_KW = 100.0;
+
+    // Historical flat planning assumption; potentials are scaled relative to it
+    public static final double BASELINE_KWH_PER_KW = 1500.0;
+
+    /** Roof types with their own precomputed yield; index 0 covers unknown types. */
+    public static final String[] ROOF_TYPES = { null, "flat", "sloped", "metal", "tile" };
+
+    /**
+     * @param specificYield annual output per kW at the address's location and
+     *                      roof type, kWh (see HourlySolarSimulator)
+     */
+    public static double calculateSolarPotential(Double monthlyUsage, Integer homeSize, double specificYield) {
+        // Simplified algorithm for demo purposes
+        if (monthlyUsage == null || monthlyUsage <= 0) {
+            return 0.0; // No potential if no usage data
+        }
+
+        double basePotential = monthlyUsage * 0.8; // 80% of current usage
+
+        // Adjust for irradiance and roof relative to the baseline yield
+        double locationFactor = specificYield / BASELINE_KWH_PER_KW;
+
+        // Adjust based on home size
+        double sizeFactor = homeSize != null ? Math.min(1.5, homeSize / 1000.0) : 1.0;
+
+        return basePotential * locationFactor * sizeFactor;
+    }
+
+    public static int roofTypeIndex(String roofType) {
+        for (int i = 1; i < ROOF_TYPES.length; i++) {
+            if (ROOF_TYPES[i].equals(roofType)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    public static double roofFactor(String roofType) {
+        if (roofType == null) {
+            return 1.0;
+        }
+        switch (roofType) {
+            case "flat":
+                return 0.9;
+            case "sloped":
+                return 1.1;
+            case "metal":
+                return 1.05;
+            case "tile":
+                return 0.95;
+            default:
+                return 1.0;
+        }
+    }
+
+    /**
+     * Sizes a system to cover the address's annual usage, limited by the roof
+     * area its home size allows. Usage and bill fall back to the values stored
+     * on the address when not given.
+     *
+     * @param specificYield simulated annual output per kW installed at this
+     *                      address, kWh (see HourlySolarSimulator)
+     * @param dataVersion   version of the irradiance data the yield came from
+     *                      (see HourlySolarSimulator#dataVersion)
+     * @return the plan, or null if there is no positive monthly usage to size for
+     */
+    public static SolarPlan generateSolarPlan(Address address, Double monthlyUsage, Double monthlyBill,
+            double specificYield, String dataVersion) {
+        if (monthlyUsage == null) {
+            monthlyUsage = address.getMonthlyUsage();
+        }
+        if (monthlyBill == null) {
+            monthlyBill = address.getMonthlyBill();
+        }
+        if (monthlyUsage == null || monthlyUsage <= 0 || specificYield <= 0) {
+            return null;
+        }
+
+        SolarPlan plan = new SolarPlan();
+        plan.setAddress(address);
+        plan.setMonthlyUsageKwh(monthlyUsage);
+
+        double annualUsage = monthlyUsage * 12.0;
+        double systemSizeKw = annualUsage / specificYield;
+        if (address.getHomeSize() != null && address.getHomeSize() > 0) {
+            systemSizeKw = Math.min(systemSizeKw, maxSystemSizeKw(address.getHomeSize()));
+        }
+        plan.setSystemSizeKw(systemSizeKw);
+
+        double annualProduction = systemSizeKw * specificYield;
+        plan.setEstimatedProductionKwh(annualProduction);
+        plan.setPanelCount((int) Math.ceil((systemSizeKw * 1000) / PANEL_WATTS));
+
+        double estimatedCost = systemSizeKw * COST_PER_KW;
+        plan.setEstimatedCost(estimatedCost);
+
+        // Payback is undefined without a bill to save against
+        double coverage = Math.min(1.0, annualProduction / annualUsage);
+        double annualSavings = monthlyBill != null ? monthlyBill * 12.0 * BILL_SAVINGS_RATIO * coverage : 0.0;
+        plan.setRoiYears(annualSavings > 0 ? estimatedCost / annualSavings : null);
+
+        plan.setInputHash(inputHash(address, monthlyUsage, monthlyBill, dataVersion));
+        return plan;
+    }
+
+    public static double maxSystemSizeKw(int homeSizeSqft) {
+        return homeSizeSqft * USABLE_ROOF_FRACTION / SQFT_PER_KW;
+    }
+
+    /**
+     * Identifies a plan by everything it was computed from, so an unchanged
+     * request can reuse the stored plan instead of writing a new one. New TMY
+     * profiles or tiles change the data version, so plans sized from the old
+     * data are not reused.
+     */
+    public static String inputHash(Address address, Double monthlyUsage, Double monthlyBill, String dataVersion) {
+        String inputs = String.join("\u001f",
+                MODEL_VERSION,
+                dataVersion,
+                String.valueOf(address.getId()),
+                String.valueOf(address.getZipCode()),
+                String.valueOf(address.getHomeSize()),
+                String.valueOf(address.getRoofType()),
+                String.valueOf(monthlyUsage),
+                String.valueOf(monthlyBill));
+        return sha256Hex(ByteBuffer.wrap(inputs.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return the hex SHA-256 of the buffer's remaining bytes; the buffer itself is not moved
+     */
+    public static String sha256Hex(ByteBuffer data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data.duplicate());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Reads a numeric field from a loosely typed request body.
+     */
+    public static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+}
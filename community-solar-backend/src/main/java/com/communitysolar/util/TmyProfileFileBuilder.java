@@ -0,0 +1,75 @@
+package com.communitysolar.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.communitysolar.service.IrradianceProfileStore;
+
+/**
+ * Offline tool that packs hourly TMY data into the binary file read by
+ * {@link IrradianceProfileStore}.
+ *
+ * Usage: {@code TmyProfileFileBuilder <input-dir> <output-file>}, where the
+ * input directory holds one {@code NNN.csv} per PIN prefix with 8760 rows of
+ * {@code ghi,ambientTempC} (an optional header row is skipped).
+ */
+public class TmyProfileFileBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(TmyProfileFileBuilder.class);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            logger.error("Usage: TmyProfileFileBuilder <input-dir> <output-file>");
+            System.exit(1);
+        }
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Path.of(args[0]), "[0-9][0-9][0-9].csv")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+
+        int[] keys = new int[files.size()];
+        short[][] ghi = new short[files.size()][];
+        short[][] temp = new short[files.size()][];
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            keys[i] = Integer.parseInt(file.getFileName().toString().substring(0, 3));
+            ghi[i] = new short[IrradianceProfileStore.HOURS];
+            temp[i] = new short[IrradianceProfileStore.HOURS];
+            readProfile(file, ghi[i], temp[i]);
+        }
+
+        IrradianceProfileStore.write(Path.of(args[1]), keys, ghi, temp);
+        logger.info("Wrote {} profiles to {}", keys.length, args[1]);
+    }
+
+    private static void readProfile(Path file, short[] ghi, short[] temp) throws IOException {
+        int hour = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length < 2 || !Character.isDigit(fields[0].trim().charAt(0))) {
+                    continue;
+                }
+                if (hour >= IrradianceProfileStore.HOURS) {
+                    throw new IOException(file + " has more than " + IrradianceProfileStore.HOURS + " hours");
+                }
+                ghi[hour] = (short) Math.round(Double.parseDouble(fields[0].trim()));
+                temp[hour] = (short) Math.round(Double.parseDouble(fields[1].trim()) * 10);
+                hour++;
+            }
+        }
+        if (hour != IrradianceProfileStore.HOURS) {
+            throw new IOException(file + " has " + hour + " hours, expected " + IrradianceProfileStore.HOURS);
+        }
+    }
+}
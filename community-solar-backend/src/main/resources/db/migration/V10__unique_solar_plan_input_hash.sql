@@ -0,0 +1,12 @@
+-- One stored plan per input hash (see SolarPlanService). Older duplicates
+-- keep their rows, since allocations may point at them, but lose their hash,
+-- so only the newest plan for each input is reused.
+
+update solar_plans
+   set input_hash = null
+ where input_hash is not null
+   and id < (select max(p.id) from solar_plans p where p.input_hash = solar_plans.input_hash);
+
+drop index if exists idx_solar_plans_input_hash;
+
+alter table solar_plans add constraint uk_solar_plans_input_hash unique (input_hash);
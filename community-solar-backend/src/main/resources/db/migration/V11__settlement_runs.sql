@@ -0,0 +1,27 @@
+-- One row per net-metering settlement run (see NetMeteringSettlementJob).
+-- active is true while a run is in progress and null afterwards, so the
+-- unique constraint lets only one run hold it at a time across instances.
+
+create sequence settlement_runs_seq start with 1 increment by 50;
+
+create table settlement_runs (
+    active boolean unique,
+    billing_month date not null,
+    through_month date,
+    total_amount_due float(53),
+    elapsed_ms bigint,
+    id bigint not null,
+    installations bigint,
+    intervals bigint,
+    settled bigint,
+    finished_at timestamp(6),
+    heartbeat_at timestamp(6),
+    requested_at timestamp(6),
+    status varchar(16) not null,
+    error varchar(1000),
+    primary key (id)
+);
+
+-- A rerun deletes the month's settlements and checks whether the next month
+-- has any; neither can use the (installation_id, billing_month) key
+create index idx_settlements_billing_month on net_metering_settlements (billing_month);
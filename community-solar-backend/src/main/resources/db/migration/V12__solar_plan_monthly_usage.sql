@@ -0,0 +1,9 @@
+-- The monthly usage a plan was sized for, so the ROI simulation prices the
+-- same consumption the plan was designed around. Plans stored before this
+-- only have their address's current figure to go on.
+
+alter table solar_plans add column monthly_usage_kwh float(53);
+
+update solar_plans
+set monthly_usage_kwh = (select a.monthly_usage from addresses a where a.id = solar_plans.address_id)
+where address_id is not null;
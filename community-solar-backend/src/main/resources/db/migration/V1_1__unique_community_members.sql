@@ -0,0 +1,15 @@
+-- A user is a member of a community at most once (see CommunityMembershipService).
+-- Before the constraint a double join could store two rows; the later ones are
+-- removed and the member counts recounted, so the constraint can be added.
+
+delete from community_members
+ where id > (select min(m.id) from community_members m
+              where m.community_id = community_members.community_id
+                and m.user_id = community_members.user_id);
+
+update communities
+   set member_count = (select count(*) from community_members m where m.community_id = communities.id);
+
+alter table community_members
+   add constraint uk_community_members_community_user
+   unique (community_id, user_id);
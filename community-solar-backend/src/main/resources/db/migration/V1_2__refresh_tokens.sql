@@ -0,0 +1,21 @@
+-- Rotating refresh tokens (see RefreshTokenService). Only the SHA-256 of the
+-- token handed to the client is stored; family_id ties together the tokens
+-- issued from one login so reuse of a rotated token can revoke them all.
+
+create sequence refresh_tokens_seq start with 1 increment by 50;
+
+create table refresh_tokens (
+    revoked boolean not null,
+    created_at timestamp(6),
+    expires_at timestamp(6) not null,
+    id bigint not null,
+    user_id bigint not null,
+    family_id varchar(36) not null,
+    token_hash varchar(64) not null unique,
+    primary key (id)
+);
+
+alter table if exists refresh_tokens
+   add constraint fk_refresh_tokens_user
+   foreign key (user_id)
+   references users;
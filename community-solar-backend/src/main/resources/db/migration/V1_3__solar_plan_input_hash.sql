@@ -0,0 +1,6 @@
+-- Hash of the inputs a plan was sized from, so an unchanged request reuses
+-- the stored plan (see SolarPlanService). Plans stored before have none.
+
+alter table solar_plans add column input_hash varchar(64);
+
+create index idx_solar_plans_input_hash on solar_plans (input_hash);
@@ -0,0 +1,32 @@
+-- Shared-system plans for a community (see CommunitySizingService). The plan
+-- belongs to the community and each member address gets an allocation row.
+
+alter table solar_plans add column community_id bigint;
+
+alter table if exists solar_plans
+   add constraint fk_solar_plans_community
+   foreign key (community_id)
+   references communities;
+
+create sequence solar_plan_allocations_seq start with 1 increment by 50;
+
+create table solar_plan_allocations (
+    allocated_production_kwh float(53),
+    estimated_production_kwh float(53),
+    panel_count integer,
+    system_size_kw float(53),
+    address_id bigint not null,
+    id bigint not null,
+    solar_plan_id bigint not null,
+    primary key (id)
+);
+
+alter table if exists solar_plan_allocations
+   add constraint fk_solar_plan_allocations_address
+   foreign key (address_id)
+   references addresses;
+
+alter table if exists solar_plan_allocations
+   add constraint fk_solar_plan_allocations_plan
+   foreign key (solar_plan_id)
+   references solar_plans;
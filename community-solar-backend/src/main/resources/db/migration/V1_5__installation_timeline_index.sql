@@ -0,0 +1,4 @@
+-- Keyset pages of an installation's timeline (see InstallationUpdateRepository)
+
+create index idx_installation_updates_timeline
+   on installation_updates (installation_id, update_time, id);
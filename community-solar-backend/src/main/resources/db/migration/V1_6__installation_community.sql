@@ -0,0 +1,12 @@
+-- Installations of a shared system point at its community, and the provider
+-- dashboard pages a provider's installations by id.
+
+alter table installations add column community_id bigint;
+
+alter table if exists installations
+   add constraint fk_installations_community
+   foreign key (community_id)
+   references communities;
+
+create index idx_installations_provider
+   on installations (provider_id, id);
@@ -0,0 +1,24 @@
+-- Underperformance alerts raised from streamed generation data (see
+-- UnderperformanceDetector). resolved_at is null while an alert is open.
+
+create sequence installation_alerts_seq start with 1 increment by 50;
+
+create table installation_alerts (
+    actual_kwh_per_kw float(53),
+    baseline_kwh_per_kw float(53),
+    neighbour_kwh_per_kw float(53),
+    detected_at timestamp(6),
+    id bigint not null,
+    installation_id bigint not null,
+    interval_start timestamp(6),
+    resolved_at timestamp(6),
+    primary key (id)
+);
+
+create index idx_installation_alerts_installation
+   on installation_alerts (installation_id, id);
+
+alter table if exists installation_alerts
+   add constraint fk_installation_alerts_installation
+   foreign key (installation_id)
+   references installations;
@@ -0,0 +1,22 @@
+-- Running performance counters, one row per installation (see
+-- InstallationPerformanceService), updated as readings are ingested.
+
+create table installation_performance (
+    current_hour_kwh float(53),
+    lifetime_kwh float(53),
+    mtd_kwh float(53),
+    mtd_month integer,
+    peak_kwh float(53),
+    ytd_kwh float(53),
+    ytd_year integer,
+    current_hour bigint,
+    first_reading_at timestamp(6),
+    installation_id bigint not null,
+    last_reading_at timestamp(6),
+    lifetime_operating_hours bigint,
+    mtd_operating_hours bigint,
+    peak_hour_start timestamp(6),
+    rebuilt_at timestamp(6),
+    ytd_operating_hours bigint,
+    primary key (installation_id)
+);
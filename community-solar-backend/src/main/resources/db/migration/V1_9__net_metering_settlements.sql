@@ -0,0 +1,31 @@
+-- Monthly net-metering settlements (see NetMeteringSettlementJob). The
+-- job streams each installation's readings for the month in time order.
+
+create sequence net_metering_settlements_seq start with 1 increment by 50;
+
+create table net_metering_settlements (
+    amount_due float(53),
+    banked_in_kwh float(53),
+    banked_out_kwh float(53),
+    billed_kwh float(53),
+    billing_month date not null,
+    credited_kwh float(53),
+    export_credit float(53),
+    exported_kwh float(53),
+    import_charge float(53),
+    imported_kwh float(53),
+    id bigint not null,
+    installation_id bigint not null,
+    intervals bigint,
+    settled_at timestamp(6),
+    primary key (id),
+    constraint uk_settlements_installation_month unique (installation_id, billing_month)
+);
+
+alter table if exists net_metering_settlements
+   add constraint fk_net_metering_settlements_installation
+   foreign key (installation_id)
+   references installations;
+
+create index idx_energy_data_installation_time
+   on energy_data (installation_id, timestamp);
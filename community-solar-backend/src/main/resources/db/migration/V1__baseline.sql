@@ -0,0 +1,291 @@
+-- Schema as generated from the entity mappings before migrations were introduced,
+-- when ids were IDENTITY columns. Databases that already have it are baselined at
+-- this version and skip it; everything added since is in the later migrations.
+
+create table addresses (
+    home_size integer,
+    monthly_bill float(53),
+    monthly_usage float(53),
+    solar_potential float(53),
+    id bigserial not null,
+    user_id bigint,
+    city varchar(255),
+    roof_type varchar(255),
+    state varchar(255),
+    street varchar(255),
+    zip_code varchar(255),
+    primary key (id)
+);
+
+create table communities (
+    member_count integer,
+    created_at timestamp(6),
+    creator_id bigint,
+    id bigserial not null,
+    updated_at timestamp(6),
+    description TEXT,
+    invite_code varchar(255) unique,
+    location varchar(255),
+    name varchar(255),
+    zip_code varchar(255),
+    primary key (id)
+);
+
+create table community_members (
+    cost_share float(53),
+    energy_allocation float(53),
+    community_id bigint,
+    id bigserial not null,
+    join_date timestamp(6),
+    user_id bigint,
+    primary key (id)
+);
+
+create table electricity_usage (
+    amount float(53),
+    units float(53),
+    created_at timestamp(6),
+    id bigserial not null,
+    user_id bigint,
+    period varchar(255),
+    primary key (id)
+);
+
+create table energy_data (
+    energy_consumed float(53),
+    energy_produced float(53),
+    grid_exported float(53),
+    grid_imported float(53),
+    id bigserial not null,
+    installation_id bigint,
+    timestamp timestamp(6),
+    primary key (id)
+);
+
+create table installation_milestones (
+    completed boolean not null,
+    completion_date timestamp(6),
+    id bigserial not null,
+    installation_id bigint,
+    description TEXT,
+    name varchar(255),
+    primary key (id)
+);
+
+create table installation_updates (
+    completed boolean,
+    progress_percentage integer,
+    id bigserial not null,
+    installation_id bigint,
+    update_time timestamp(6),
+    update_notes TEXT,
+    primary key (id)
+);
+
+create table installations (
+    current_progress integer,
+    is_generating boolean,
+    total_capacity_kw float(53),
+    completion_date timestamp(6),
+    generation_start_date timestamp(6),
+    id bigserial not null,
+    provider_id bigint,
+    solar_plan_id bigint,
+    start_date timestamp(6),
+    user_id bigint,
+    status varchar(255) check (status in ('PENDING','APPROVED','IN_PROGRESS','COMPLETED','CANCELLED')),
+    primary key (id)
+);
+
+create table payments (
+    amount float(53),
+    installment_number integer,
+    original_amount float(53),
+    total_installments integer,
+    community_id bigint,
+    id bigserial not null,
+    payment_date timestamp(6),
+    user_id bigint,
+    payment_method varchar(255),
+    status varchar(255) check (status in ('PENDING','COMPLETED','FAILED','REFUNDED')),
+    transaction_id varchar(255),
+    primary key (id)
+);
+
+create table provider_reviews (
+    rating integer,
+    created_at timestamp(6),
+    id bigserial not null,
+    provider_id bigint,
+    user_id bigint,
+    comment TEXT,
+    primary key (id)
+);
+
+create table providers (
+    avg_rating float(53),
+    is_certified boolean,
+    years_experience integer,
+    id bigserial not null,
+    user_id bigint,
+    address varchar(255),
+    description TEXT,
+    email varchar(255),
+    name varchar(255),
+    phone varchar(255),
+    website varchar(255),
+    primary key (id)
+);
+
+create table roles (
+    id serial not null,
+    name varchar(20) check (name in ('ROLE_USER','ROLE_PROVIDER','ROLE_ADMIN')),
+    primary key (id)
+);
+
+create table solar_plans (
+    estimated_cost float(53),
+    estimated_production_kwh float(53),
+    panel_count integer,
+    roi_years float(53),
+    system_size_kw float(53),
+    address_id bigint,
+    created_at timestamp(6),
+    id bigserial not null,
+    primary key (id)
+);
+
+create table solar_usage (
+    bill_amount float(53),
+    grid_energy_used float(53),
+    solar_energy_used float(53),
+    id bigserial not null,
+    installation_id bigint,
+    reading_timestamp timestamp(6),
+    user_id bigint,
+    primary key (id)
+);
+
+create table user_roles (
+    role_id integer not null,
+    user_id bigint not null,
+    primary key (role_id, user_id)
+);
+
+create table users (
+    id bigserial not null,
+    email varchar(50),
+    username varchar(50),
+    password varchar(120),
+    first_name varchar(255),
+    last_name varchar(255),
+    phone_number varchar(255),
+    primary key (id),
+    unique (username),
+    unique (email)
+);
+
+alter table if exists addresses
+   add constraint FK1fa36y2oqhao3wgg2rw1pi459
+   foreign key (user_id)
+   references users;
+
+alter table if exists communities
+   add constraint FKehds1lhi1y9a8rweslp1esncn
+   foreign key (creator_id)
+   references users;
+
+alter table if exists community_members
+   add constraint FKqn9g17tqcwnoy41o2am9fnlep
+   foreign key (community_id)
+   references communities;
+
+alter table if exists community_members
+   add constraint FKme7k1stbnwi6cpmm8a6sgcikn
+   foreign key (user_id)
+   references users;
+
+alter table if exists electricity_usage
+   add constraint FKf8iqi77i41bnp26i1wjuxroge
+   foreign key (user_id)
+   references users;
+
+alter table if exists energy_data
+   add constraint FKo8152mxy1l7m7kjrm6ho5h343
+   foreign key (installation_id)
+   references installations;
+
+alter table if exists installation_milestones
+   add constraint FKkytm11vu9uusskmuekbilc4hk
+   foreign key (installation_id)
+   references installations;
+
+alter table if exists installation_updates
+   add constraint FKqewpjg2l4lylag6t0ceu5o28e
+   foreign key (installation_id)
+   references installations;
+
+alter table if exists installations
+   add constraint FKboyknp4xgdnn3p5aqavqxhfdu
+   foreign key (provider_id)
+   references providers;
+
+alter table if exists installations
+   add constraint FKf5ukdb0q8q9wti43ydutmtb64
+   foreign key (solar_plan_id)
+   references solar_plans;
+
+alter table if exists installations
+   add constraint FK27hjwooa2ru9c91puyqwqtdna
+   foreign key (user_id)
+   references users;
+
+alter table if exists payments
+   add constraint FK5cpv4ng85x53623j7ncdsesom
+   foreign key (community_id)
+   references communities;
+
+alter table if exists payments
+   add constraint FKj94hgy9v5fw1munb90tar2eje
+   foreign key (user_id)
+   references users;
+
+alter table if exists provider_reviews
+   add constraint FKapsapyyeybvagdm3s9kafro0
+   foreign key (provider_id)
+   references providers;
+
+alter table if exists provider_reviews
+   add constraint FKq5nlp8g7j0yiu6df2o00jrh7h
+   foreign key (user_id)
+   references users;
+
+alter table if exists providers
+   add constraint FKlymp42tvombik3t66um6ocsba
+   foreign key (user_id)
+   references users;
+
+alter table if exists solar_plans
+   add constraint FKp8tm8dqkgdfojjpculd8df6o6
+   foreign key (address_id)
+   references addresses;
+
+alter table if exists solar_usage
+   add constraint FK7bf8r57n8ytuk298ateaeovyo
+   foreign key (installation_id)
+   references installations;
+
+alter table if exists solar_usage
+   add constraint FKpqajl52t7tq42fg3v6r7p16qg
+   foreign key (user_id)
+   references users;
+
+alter table if exists user_roles
+   add constraint FKh8ciramu9cc9q3qcqiv4ue8a6
+   foreign key (role_id)
+   references roles;
+
+alter table if exists user_roles
+   add constraint FKhfh9dx7w3ubf1co1vdev94g3f
+   foreign key (user_id)
+   references users;
@@ -0,0 +1,53 @@
+-- Composite indexes for the filters the repositories run on every request.
+-- Equality columns first, then the range or sort column. energy_data
+-- (installation_id, timestamp) and the unique keys are created with their
+-- tables.
+
+create index if not exists idx_solar_usage_user_time
+    on solar_usage (user_id, reading_timestamp);
+
+create index if not exists idx_solar_usage_installation_time
+    on solar_usage (installation_id, reading_timestamp);
+
+-- (community_id, user_id) is already covered by the unique constraint
+create index if not exists idx_community_members_user
+    on community_members (user_id, community_id);
+
+create index if not exists idx_payments_community_status
+    on payments (community_id, status);
+
+create index if not exists idx_payments_user_community_status
+    on payments (user_id, community_id, status);
+
+create index if not exists idx_electricity_usage_user_period
+    on electricity_usage (user_id, period);
+
+create index if not exists idx_installations_user
+    on installations (user_id, is_generating);
+
+create index if not exists idx_installations_community
+    on installations (community_id, is_generating);
+
+create index if not exists idx_addresses_user
+    on addresses (user_id);
+
+create index if not exists idx_solar_plans_address_created
+    on solar_plans (address_id, created_at);
+
+create index if not exists idx_solar_plan_allocations_plan
+    on solar_plan_allocations (solar_plan_id);
+
+create index if not exists idx_installation_milestones_installation
+    on installation_milestones (installation_id);
+
+create index if not exists idx_refresh_tokens_family
+    on refresh_tokens (family_id);
+
+create index if not exists idx_refresh_tokens_expires
+    on refresh_tokens (expires_at);
+
+create index if not exists idx_communities_zip_code
+    on communities (zip_code);
+
+create index if not exists idx_communities_creator
+    on communities (creator_id);
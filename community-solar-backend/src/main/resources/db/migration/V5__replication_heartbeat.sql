@@ -0,0 +1,10 @@
+-- Single row the primary keeps stamping with the current time; reading it on
+-- the replica gives the replication lag (see ReplicaLagMonitor).
+
+create table replication_heartbeat (
+    id integer not null,
+    beat_at timestamp(6) not null,
+    primary key (id)
+);
+
+insert into replication_heartbeat (id, beat_at) values (1, current_timestamp);
@@ -0,0 +1,21 @@
+-- Single-use password reset tokens (see PasswordResetService). Only the
+-- SHA-256 of the token sent to the user is stored.
+
+create sequence password_reset_tokens_seq start with 1 increment by 50;
+
+create table password_reset_tokens (
+    used boolean not null,
+    created_at timestamp(6),
+    expires_at timestamp(6) not null,
+    id bigint not null,
+    user_id bigint not null,
+    token_hash varchar(64) not null unique,
+    primary key (id)
+);
+
+create index idx_password_reset_tokens_user on password_reset_tokens (user_id);
+
+alter table if exists password_reset_tokens
+   add constraint fk_password_reset_tokens_user
+   foreign key (user_id)
+   references users;
@@ -0,0 +1,9 @@
+-- Emails are now stored in lower case so sign-in, password reset and
+-- enrolment can look them up through the unique index on users.email.
+-- Addresses that would collide with an existing lower-case one are left as
+-- they are and need to be merged by hand.
+
+update users
+   set email = lower(email)
+ where email <> lower(email)
+   and not exists (select 1 from users other where other.email = lower(users.email));
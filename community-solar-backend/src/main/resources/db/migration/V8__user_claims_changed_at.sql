@@ -0,0 +1,5 @@
+-- When a user's roles or profile last changed. Tokens issued before it are
+-- resolved from the database instead of from their claims (see
+-- UserDetailsCache).
+
+alter table users add column claims_changed_at timestamp(6);
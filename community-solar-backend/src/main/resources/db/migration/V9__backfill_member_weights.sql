@@ -0,0 +1,22 @@
+-- Member weights replace the energy_allocation/cost_share percentages of V1.
+-- Members without a weight get the default of 1.0, an equal share. The old
+-- percentages are not carried over: joiners were stored with 0 and only the
+-- creator with 100, so they never described a real split. The community
+-- totals are then recomputed from the members, which also repairs any drift.
+
+alter table community_members add column if not exists allocation_weight float(53);
+alter table community_members add column if not exists cost_weight float(53);
+alter table communities add column if not exists total_allocation_weight float(53);
+alter table communities add column if not exists total_cost_weight float(53);
+
+update community_members set allocation_weight = 1.0 where allocation_weight is null;
+update community_members set cost_weight = 1.0 where cost_weight is null;
+
+update communities
+   set total_allocation_weight = coalesce((select sum(m.allocation_weight) from community_members m
+                                            where m.community_id = communities.id), 0),
+       total_cost_weight = coalesce((select sum(m.cost_weight) from community_members m
+                                      where m.community_id = communities.id), 0);
+
+alter table community_members drop column if exists energy_allocation;
+alter table community_members drop column if exists cost_share;
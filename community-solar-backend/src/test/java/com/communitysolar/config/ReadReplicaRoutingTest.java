@@ -0,0 +1,125 @@
+package com.communitysolar.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+
+import com.communitysolar.model.Community;
+import com.communitysolar.repository.CommunityRepository;
+import com.communitysolar.service.MonitoringQueryService;
+import com.communitysolar.service.PaymentQueryService;
+
+/**
+ * Boots with two separate in-memory H2 databases as primary and replica, so
+ * a row that exists in only one of them shows which one a transaction used.
+ * The replica gets the same Flyway schema; replication is stood in for by
+ * writing its heartbeat row directly.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTest.PRIMARY_URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "app.datasource.replica.url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "app.datasource.replica.heartbeat-interval-ms=3600000",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class ReadReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    // Present only on the replica
+    private static final long REPLICA_COMMUNITY_ID = 900_001L;
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private PaymentQueryService paymentQueryService;
+
+    @Autowired
+    private CommunityRepository communityRepository;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setUpReplica() {
+        Flyway.configure().configuration(flyway.getConfiguration())
+                .dataSource(REPLICA_URL, "sa", "")
+                .load()
+                .migrate();
+        replica.update("merge into communities (id, name) key (id) values (?, 'replica only')", REPLICA_COMMUNITY_ID);
+        replicateHeartbeat(LocalDateTime.now());
+    }
+
+    @Test
+    void readOnlyServiceMethodsUseTheReplica() {
+        assertThat(lagMonitor.isReplicaUsable()).isTrue();
+
+        // Would throw "Community not found" on the primary
+        assertThat(paymentQueryService.communityPayments(REPLICA_COMMUNITY_ID)).isEmpty();
+    }
+
+    @Test
+    void writesGoToThePrimary() {
+        Community community = new Community();
+        community.setName("written through the app");
+        communityRepository.save(community);
+
+        String count = "select count(*) from communities where name = 'written through the app'";
+        assertThat(primary.queryForObject(count, Integer.class)).isEqualTo(1);
+        assertThat(replica.queryForObject(count, Integer.class)).isZero();
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhileTheReplicaLags() {
+        replicateHeartbeat(LocalDateTime.now().minusHours(1));
+        assertThat(lagMonitor.isReplicaUsable()).isFalse();
+
+        assertThatThrownBy(() -> paymentQueryService.communityPayments(REPLICA_COMMUNITY_ID))
+                .hasMessage("Community not found");
+    }
+
+    // Repository calls are read-only on their own; the services make each endpoint one transaction
+    @Test
+    void queryServiceMethodsAreReadOnlyTransactions() {
+        AnnotationTransactionAttributeSource attributes = new AnnotationTransactionAttributeSource();
+        for (Class<?> service : new Class<?>[] { MonitoringQueryService.class, PaymentQueryService.class }) {
+            for (Method method : service.getDeclaredMethods()) {
+                if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                TransactionAttribute attribute = attributes.getTransactionAttribute(method, service);
+                assertThat(attribute).as(method.toString()).isNotNull();
+                assertThat(attribute.isReadOnly()).as(method.toString()).isTrue();
+            }
+        }
+    }
+
+    // Sets the replica's copy of the heartbeat, then lets the monitor measure the lag
+    private void replicateHeartbeat(LocalDateTime beatAt) {
+        replica.update("update replication_heartbeat set beat_at = ? where id = 1", Timestamp.valueOf(beatAt));
+        lagMonitor.check();
+    }
+}
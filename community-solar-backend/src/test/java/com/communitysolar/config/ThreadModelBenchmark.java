@@ -0,0 +1,245 @@
+package com.communitysolar.config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.communitysolar.CommunitySolarApplication;
+import com.communitysolar.service.ReadingPartitions;
+
+/**
+ * Request throughput and latency of the running application with requests on
+ * Tomcat's platform worker pool against requests on virtual threads
+ * ({@code spring.threads.virtual.enabled}), over three workloads: login
+ * (BCrypt on the hashing pool plus a refresh-token insert), a month of a
+ * member's solar usage (one range read of about 720 rows) and a provider's
+ * dashboard page. The application is booted once per fork with the
+ * production configuration apart from the database, the rate limiter and
+ * debug logging, and driven over HTTP by more client threads than Tomcat has
+ * workers.
+ *
+ * Requests shed with 503, by {@code ConcurrencyLimitFilter} or by a full
+ * password hashing queue, are counted in {@code shed} rather than failing the
+ * run, and successful ones in {@code ok}; the primary score counts both, so
+ * read {@code ok} for the useful throughput. Any other error fails the run.
+ *
+ * By default the database is an in-memory H2 reached over a loopback TCP
+ * server the benchmark starts, so JDBC calls block on a socket as they would
+ * against a real server. Point {@code url}, {@code user} and {@code password}
+ * at a scratch PostgreSQL database to measure there; it is migrated and
+ * seeded like a fresh install.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(256)
+public class ThreadModelBenchmark {
+
+    private static final String PASSWORD = "bench-password";
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    @Param({ "false", "true" })
+    private boolean virtualThreads;
+
+    @Param("jdbc:h2:tcp://localhost:9124/mem:threadbench;DB_CLOSE_DELAY=-1")
+    private String url;
+
+    @Param("sa")
+    private String user;
+
+    @Param("")
+    private String password;
+
+    private Server h2Server;
+
+    private ConfigurableApplicationContext context;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private String baseUrl;
+
+    private HttpRequest login;
+
+    private HttpRequest usage;
+
+    private HttpRequest dashboard;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (url.startsWith("jdbc:h2:tcp://localhost:9124/")) {
+            h2Server = Server.createTcpServer("-tcpPort", "9124", "-ifNotExists").start();
+        }
+        // As arguments, so they override application.properties
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + user,
+                "--spring.datasource.password=" + password,
+                "--spring.jpa.show-sql=false",
+                "--app.rate-limit.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                "--logging.level.com.communitysolar=WARN"));
+        if (url.startsWith("jdbc:h2:")) {
+            args.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        }
+        context = new SpringApplicationBuilder(CommunitySolarApplication.class).run(args.toArray(String[]::new));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + context.getEnvironment().getProperty("server.servlet.context-path", "");
+
+        String member = signUpAndLogIn("bench-member", "user");
+        String memberToken = find(TOKEN, member);
+        long memberId = Long.parseLong(find(ID, member));
+        seedUsage(memberId);
+        String providerToken = find(TOKEN, signUpAndLogIn("bench-provider", "provider"));
+        send(post("/api/providers", providerToken, "{\"name\":\"Bench Solar\"}"));
+
+        login = post("/auth/login", null, "{\"email\":\"bench-member@example.com\",\"password\":\"" + PASSWORD + "\"}");
+        usage = get("/monitoring/usage/" + memberId + "?period=monthly", memberToken);
+        dashboard = get("/api/providers/projects/active?page=0&size=20", providerToken);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+        if (h2Server != null) {
+            h2Server.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long ok;
+        public long shed;
+    }
+
+    @Benchmark
+    public int login(Outcomes outcomes) throws Exception {
+        return exchange(login, outcomes);
+    }
+
+    @Benchmark
+    public int usage(Outcomes outcomes) throws Exception {
+        return exchange(usage, outcomes);
+    }
+
+    @Benchmark
+    public int dashboard(Outcomes outcomes) throws Exception {
+        return exchange(dashboard, outcomes);
+    }
+
+    private int exchange(HttpRequest request, Outcomes outcomes) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 200) {
+            outcomes.ok++;
+        } else if (response.statusCode() == 503) {
+            outcomes.shed++;
+        } else {
+            throw new IllegalStateException(request.uri() + " answered " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    // Returns the login response
+    private String signUpAndLogIn(String username, String role) throws IOException, InterruptedException {
+        String email = username + "@example.com";
+        send(post("/auth/signup", null, "{\"username\":\"" + username + "\",\"email\":\"" + email
+                + "\",\"password\":\"" + PASSWORD + "\",\"roles\":[\"" + role + "\"]}"));
+        return send(post("/auth/login", null, "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}"));
+    }
+
+    // Hourly readings for the last 30 days, through the same partition routing the application uses
+    private void seedUsage(long memberId) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        ReadingPartitions partitions = context.getBean(ReadingPartitions.class);
+        LocalDateTime end = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+        LocalDateTime start = end.minusDays(30);
+        partitions.ensureMonths(ReadingPartitions.Table.SOLAR_USAGE, List.of(YearMonth.from(start), YearMonth.from(end)));
+        List<Object[]> rows = new ArrayList<>();
+        long id = 1;
+        for (LocalDateTime at = start; at.isBefore(end); at = at.plusHours(1)) {
+            rows.add(new Object[] { id++, memberId, Timestamp.valueOf(at), 1.5, 0.8, 6.0 });
+        }
+        jdbcTemplate.batchUpdate("insert into solar_usage (id, user_id, reading_timestamp, solar_energy_used, "
+                + "grid_energy_used, bill_amount) values (?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " answered " + response.statusCode() + ": "
+                    + response.body());
+        }
+        return response.body();
+    }
+
+    private static String find(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No " + pattern + " in " + body);
+        }
+        return matcher.group(1);
+    }
+}
@@ -0,0 +1,163 @@
+package com.communitysolar.model;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost per row of persisting a request's worth of readings through
+ * Hibernate, with the id generation the entities used to have (IDENTITY,
+ * which makes Hibernate insert each row on its own to read back its key)
+ * against the pooled sequences they use now, which let inserts go out in
+ * JDBC batches. Both run with the application's batch settings on two
+ * scratch tables shaped like {@code energy_data}, created and dropped by the
+ * benchmark and mapped in {@code benchmark/id-generation-readings.orm.xml}.
+ *
+ * By default the database is an in-memory H2 reached over a loopback TCP
+ * server the benchmark starts, so every statement pays a round trip as it
+ * would against a real server; with an embedded URL there is none and the
+ * two come out alike. Point {@code url}, {@code user} and {@code password} at
+ * a scratch PostgreSQL database to measure there, keeping
+ * {@code reWriteBatchedInserts=true} on the URL as the application does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationInsertBenchmark {
+
+    private static final int ROWS = 5000;
+
+    // spring.jpa.properties.hibernate.jdbc.batch_size
+    private static final int BATCH_SIZE = 50;
+
+    @Param("jdbc:h2:tcp://localhost:9123/mem:insertbench;DB_CLOSE_DELAY=-1")
+    private String url;
+
+    @Param("sa")
+    private String user;
+
+    @Param("")
+    private String password;
+
+    private Server h2Server;
+
+    private SessionFactory sessionFactory;
+
+    @Setup
+    public void setUp() throws SQLException {
+        if (url.startsWith("jdbc:h2:tcp://localhost:9123/")) {
+            h2Server = Server.createTcpServer("-tcpPort", "9123", "-ifNotExists").start();
+        }
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.JAKARTA_JDBC_URL, url)
+                .applySetting(AvailableSettings.JAKARTA_JDBC_USER, user)
+                .applySetting(AvailableSettings.JAKARTA_JDBC_PASSWORD, password)
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, BATCH_SIZE)
+                .applySetting(AvailableSettings.ORDER_INSERTS, true)
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addResource("benchmark/id-generation-readings.orm.xml")
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    // Keeps the tables, and so their indexes, the same size for every iteration
+    @Setup(Level.Iteration)
+    public void truncate() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("delete from IdentityReading").executeUpdate();
+            session.createMutationQuery("delete from PooledReading").executeUpdate();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        if (h2Server != null) {
+            h2Server.stop();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void identity() {
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < ROWS; i++) {
+                IdentityReading reading = new IdentityReading();
+                fill(reading, i);
+                session.persist(reading);
+            }
+            flushAndClear(session);
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void pooledSequence() {
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < ROWS; i++) {
+                PooledReading reading = new PooledReading();
+                fill(reading, i);
+                session.persist(reading);
+            }
+            flushAndClear(session);
+        });
+    }
+
+    private static void fill(Reading reading, int i) {
+        reading.installationId = (long) (i % 100);
+        reading.timestamp = LocalDateTime.of(2026, 1, 1, 0, 0).plusMinutes(15L * i);
+        reading.energyProduced = i * 0.01;
+        reading.energyConsumed = i * 0.02;
+        reading.gridImported = i * 0.005;
+        reading.gridExported = i * 0.003;
+    }
+
+    private static void flushAndClear(Session session) {
+        session.flush();
+        session.clear();
+    }
+
+    abstract static class Reading {
+        Long installationId;
+        LocalDateTime timestamp;
+        Double energyProduced;
+        Double energyConsumed;
+        Double gridImported;
+        Double gridExported;
+    }
+
+    static class IdentityReading extends Reading {
+        Long id;
+    }
+
+    static class PooledReading extends Reading {
+        Long id;
+    }
+}
@@ -0,0 +1,196 @@
+package com.communitysolar.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs every query declared on the repositories against the Flyway-built
+ * schema on H2, then EXPLAINs each statement they issued and fails if any of
+ * them scans one of the tables that grow with usage. Statements are taken from
+ * H2's query statistics, so derived, JPQL, native and custom-implementation
+ * queries are all covered. Plans are for empty tables; H2 picks indexes by
+ * what the filter can use, not by row counts, so that is enough to catch a
+ * missing index.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:queryplans;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class QueryPlanTest {
+
+    // Tables that grow with users, installations or readings; month tables match by prefix
+    private static final Set<String> LARGE_TABLES = Set.of(
+            "USERS", "COMMUNITY_MEMBERS", "PAYMENTS", "ELECTRICITY_USAGE", "ADDRESSES", "SOLAR_PLANS",
+            "SOLAR_PLAN_ALLOCATIONS", "INSTALLATIONS", "INSTALLATION_UPDATES", "INSTALLATION_MILESTONES",
+            "INSTALLATION_ALERTS", "INSTALLATION_PERFORMANCE", "NET_METERING_SETTLEMENTS", "REFRESH_TOKENS",
+            "PASSWORD_RESET_TOKENS", "SOLAR_USAGE", "ENERGY_DATA");
+
+    // Queries that read a whole table on purpose
+    private static final Set<String> FULL_READS = Set.of(
+            "CommunityRepository.findAllResponses", "ProviderRepository.findAllResponses",
+            "ProviderRepository.findByIsCertified");
+
+    private static final Pattern EXPLAINABLE = Pattern.compile("(select|with|insert|update|delete|merge)\\b");
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.([A-Z0-9_]+)\\.tableScan");
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void repositoryQueriesUseIndexesOnLargeTables() throws Exception {
+        Map<String, Set<String>> statementsByQuery = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, Object> entry : repositoryInterfaces().entrySet()) {
+            Class<?> repository = entry.getKey();
+            Object bean = entry.getValue();
+            for (Method method : repository.getDeclaredMethods()) {
+                if (method.isDefault() || method.isSynthetic()) {
+                    continue;
+                }
+                String name = repository.getSimpleName() + "." + method.getName();
+                statementsByQuery.computeIfAbsent(name, key -> new LinkedHashSet<>()).addAll(run(bean, method));
+            }
+        }
+
+        List<String> scans = new ArrayList<>();
+        statementsByQuery.forEach((query, statements) -> {
+            assertThat(statements).as("statements issued by %s", query).isNotEmpty();
+            if (FULL_READS.contains(query)) {
+                return;
+            }
+            for (String sql : statements) {
+                String plan = jdbcTemplate.queryForObject("explain " + sql, String.class);
+                Matcher matcher = TABLE_SCAN.matcher(plan);
+                while (matcher.find()) {
+                    if (isLarge(matcher.group(1))) {
+                        scans.add(query + " scans " + matcher.group(1) + ":\n" + plan);
+                    }
+                }
+            }
+        });
+        assertThat(scans).as("full scans of large tables").isEmpty();
+    }
+
+    // Runs one query method and returns the statements it sent to the database
+    private Set<String> run(Object bean, Method method) throws Exception {
+        Object[] args = new Object[method.getParameterCount()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = sampleValue(method.getParameterTypes()[i], method.getGenericParameterTypes()[i]);
+        }
+        jdbcTemplate.execute("set query_statistics true");
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                method.invoke(bean, args);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not run " + method, e);
+            }
+            status.setRollbackOnly();
+        });
+
+        // Read before switching statistics off, which discards them
+        Set<String> statements = new LinkedHashSet<>();
+        for (String sql : jdbcTemplate.queryForList("select sql_statement from information_schema.query_statistics",
+                String.class)) {
+            String normalized = sql.trim().toLowerCase(Locale.ROOT);
+            if (EXPLAINABLE.matcher(normalized).lookingAt() && !normalized.contains("information_schema")) {
+                statements.add(sql);
+            }
+        }
+        jdbcTemplate.execute("set query_statistics false");
+        return statements;
+    }
+
+    // Each repository interface, and the custom fragments it extends, with the bean implementing it
+    private Map<Class<?>, Object> repositoryInterfaces() {
+        Map<Class<?>, Object> interfaces = new LinkedHashMap<>();
+        for (Object bean : context.getBeansOfType(Repository.class).values()) {
+            for (Class<?> type : bean.getClass().getInterfaces()) {
+                if (type.getPackageName().equals(QueryPlanTest.class.getPackageName())) {
+                    interfaces.put(type, bean);
+                    for (Class<?> custom : type.getInterfaces()) {
+                        if (custom.getPackageName().equals(QueryPlanTest.class.getPackageName())) {
+                            interfaces.put(custom, bean);
+                        }
+                    }
+                }
+            }
+        }
+        return interfaces;
+    }
+
+    private static boolean isLarge(String table) {
+        return LARGE_TABLES.contains(table) || LARGE_TABLES.stream().anyMatch(large -> table.startsWith(large + "_Y"));
+    }
+
+    private Object sampleValue(Class<?> type, Type genericType) throws Exception {
+        if (type == Long.class || type == long.class) {
+            return 1L;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 10;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return true;
+        }
+        if (type == Double.class || type == double.class) {
+            return 1.0;
+        }
+        if (type == String.class) {
+            return "sample";
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.now();
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (type == Pageable.class) {
+            return PageRequest.of(0, 10);
+        }
+        if (type.isEnum()) {
+            return type.getEnumConstants()[0];
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            Type element = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            return List.of(sampleValue((Class<?>) element, element), sampleValue((Class<?>) element, element));
+        }
+        // An entity: a detached instance with an id is enough to bind its key
+        Object entity = type.getDeclaredConstructor().newInstance();
+        type.getMethod("setId", Long.class).invoke(entity, 1L);
+        return entity;
+    }
+}
@@ -0,0 +1,77 @@
+package com.communitysolar.security;
+
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Cost of verifying the bearer token on each request, as the auth filter
+ * does it. {@code perCallKey} is the path the filter used to take: decode the
+ * secret, build the key and a parser, verify the token, then do all of it a
+ * second time to read the subject. {@code cachedParser} is
+ * {@link JwtUtils#parseToken}, one verification with the key and parser built
+ * at startup. The token carries the same claims the application issues.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET =
+            "eW91cl9qd3Rfc2VjcmV0X2tleV9oZXJlX21ha2VfaXRfdmVyeV9sb25nX2FuZF9zZWN1cmVfaW5fcHJvZHVjdGlvbg==";
+
+    private JwtUtils jwtUtils;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 900_000);
+        jwtUtils.init();
+
+        UserDetailsImpl user = new UserDetailsImpl(42L, "member", "member@example.com", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @Benchmark
+    public String perCallKey() {
+        // The old filter path: validateJwtToken, then getUserNameFromJwtToken, each building its own parser
+        Jwts.parserBuilder().setSigningKey(key()).build().parse(token);
+        return Jwts.parserBuilder().setSigningKey(key()).build().parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public JwtClaims cachedParser() {
+        return jwtUtils.parseToken(token);
+    }
+
+    private static Key key() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+}
@@ -0,0 +1,117 @@
+package com.communitysolar.security;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+
+/**
+ * Cost the rate limiter adds to a request, spread over {@code clients}
+ * distinct addresses. {@code passThrough} is the same request with an empty
+ * filter chain, so the overhead is the difference between the two scores.
+ * Limits are set high enough that every request is admitted. Each thread
+ * cycles through its own slice of the clients, as a mock request can only be
+ * in one filter at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class RateLimitFilterBenchmark {
+
+    @Param({"1000", "100000"})
+    private int clients;
+
+    private RateLimitFilter filter;
+
+    private MockHttpServletRequest[] requests;
+
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    private final FilterChain chain = (request, response) -> { };
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxClients(clients * 2L);
+        properties.getDefaultLimit().setCapacity(1_000_000);
+        properties.getDefaultLimit().setRefillPerSecond(1_000_000_000);
+        RateLimitProperties.Route login = new RateLimitProperties.Route();
+        login.setPattern("/auth/login");
+        login.setMethod("POST");
+        login.setCapacity(5);
+        login.setRefillPerSecond(0.2);
+        login.setByAddress(true);
+        properties.setRoutes(List.of(login));
+
+        filter = new RateLimitFilter();
+        ReflectionTestUtils.setField(filter, "properties", properties);
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        filter.init();
+
+        requests = new MockHttpServletRequest[clients];
+        for (int i = 0; i < clients; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/monitoring/dashboard");
+            request.setServletPath("/monitoring/dashboard");
+            request.setRemoteAddr("10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff));
+            requests[i] = request;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+        private int stride;
+
+        @Setup
+        public void setUp(RateLimitFilterBenchmark benchmark, BenchmarkParams params) {
+            index = benchmark.threadIds.getAndIncrement();
+            stride = params.getThreads();
+        }
+
+        MockHttpServletRequest next(MockHttpServletRequest[] requests) {
+            MockHttpServletRequest request = requests[index];
+            index += stride;
+            if (index >= requests.length) {
+                index %= stride;
+            }
+            return request;
+        }
+    }
+
+    @Benchmark
+    public MockHttpServletResponse passThrough(Cursor cursor) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        chain.doFilter(cursor.next(requests), response);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse rateLimited(Cursor cursor) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(cursor.next(requests), response, chain);
+        return response;
+    }
+}